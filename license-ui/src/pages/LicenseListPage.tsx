@@ -1,10 +1,11 @@
-import React, { useEffect, useMemo, useState } from "react";
+import React, { useCallback, useEffect, useState } from "react";
 import { api } from "../api/client";
-import type { License } from "../types";
+import type { License, LicensePage } from "../types";
 
 import Box from "@mui/material/Box";
 import Button from "@mui/material/Button";
 import IconButton from "@mui/material/IconButton";
+import MenuItem from "@mui/material/MenuItem";
 import Paper from "@mui/material/Paper";
 import Stack from "@mui/material/Stack";
 import Table from "@mui/material/Table";
@@ -12,6 +13,7 @@ import TableBody from "@mui/material/TableBody";
 import TableCell from "@mui/material/TableCell";
 import TableContainer from "@mui/material/TableContainer";
 import TableHead from "@mui/material/TableHead";
+import TablePagination from "@mui/material/TablePagination";
 import TableRow from "@mui/material/TableRow";
 import TextField from "@mui/material/TextField";
 import Typography from "@mui/material/Typography";
@@ -27,26 +29,46 @@ import AppLayout from "../components/AppLayout";
 
 const LicenseListPage: React.FC = () => {
   const [items, setItems] = useState<License[]>([]);
+  const [total, setTotal] = useState(0);
   const [query, setQuery] = useState("");
+  const [productId, setProductId] = useState("");
+  const [entityId, setEntityId] = useState("");
+  const [enabled, setEnabled] = useState("");
+  const [filters, setFilters] = useState({ key: "", productId: "", entityId: "" });
+  const [page, setPage] = useState(0);
+  const [rowsPerPage, setRowsPerPage] = useState(25);
   const [confirmId, setConfirmId] = useState<string | null>(null);
   const { enqueueSnackbar } = useSnackbar();
   const navigate = useNavigate();
 
-  const load = async () => {
-    const res = await api.get<License[]>("/licenses"); // optional: /licenses?q=query
-    setItems(res.data);
-  };
+  // Suche erst nach kurzer Tipp-Pause an den Server schicken
+  useEffect(() => {
+    const t = setTimeout(() => {
+      setFilters({ key: query.trim(), productId: productId.trim(), entityId: entityId.trim() });
+      setPage(0);
+    }, 300);
+    return () => clearTimeout(t);
+  }, [query, productId, entityId]);
 
-  useEffect(() => { load(); }, []);
+  const load = useCallback(async () => {
+    // Filtern, Sortieren und Paging passiert in der Datenbank; Audience und Entity müssen exakt
+    // passen, der Key-Präfix unterscheidet Groß- und Kleinschreibung
+    const res = await api.get<LicensePage>("/licenses/search", {
+      params: {
+        key: filters.key || undefined,
+        productId: filters.productId || undefined,
+        entityId: filters.entityId || undefined,
+        enabled: enabled || undefined,
+        page,
+        size: rowsPerPage,
+        sort: "key",
+      },
+    });
+    setItems(res.data.licenses);
+    setTotal(res.data.total);
+  }, [filters, enabled, page, rowsPerPage]);
 
-  const filtered = useMemo(() => {
-    const q = query.toLowerCase();
-    return items.filter(i =>
-      i.key.toLowerCase().includes(q) ||
-      i.aud.toLowerCase().includes(q) ||
-      (i.id && i.id.toString().includes(q))
-    );
-  }, [items, query]);
+  useEffect(() => { load(); }, [load]);
 
   const onDelete = async (id: string) => {
     await api.delete(`/licenses/${id}`);
@@ -64,10 +86,26 @@ const LicenseListPage: React.FC = () => {
         </Button>
       </Stack>
 
-      <TextField
-        fullWidth placeholder="Suche (Key, Audience, ID)…"
-        value={query} onChange={(e) => setQuery(e.target.value)} sx={{ mb: 2 }}
-      />
+      <Stack direction="row" spacing={2} mb={2}>
+        <TextField
+          fullWidth placeholder="Suche (Key-Präfix)…"
+          value={query} onChange={(e) => setQuery(e.target.value)}
+        />
+        <TextField
+          label="Audience" value={productId} onChange={(e) => setProductId(e.target.value)}
+        />
+        <TextField
+          label="Entity" value={entityId} onChange={(e) => setEntityId(e.target.value)}
+        />
+        <TextField
+          select label="Aktiv" value={enabled} sx={{ minWidth: 120 }}
+          onChange={(e) => { setEnabled(e.target.value); setPage(0); }}
+        >
+          <MenuItem value="">Alle</MenuItem>
+          <MenuItem value="true">Ja</MenuItem>
+          <MenuItem value="false">Nein</MenuItem>
+        </TextField>
+      </Stack>
 
       <TableContainer component={Paper}>
         <Table size="small">
@@ -81,7 +119,7 @@ const LicenseListPage: React.FC = () => {
             </TableRow>
           </TableHead>
           <TableBody>
-            {filtered.map((row) => (
+            {items.map((row) => (
               <TableRow key={row.id} hover>
                 <TableCell>{row.id}</TableCell>
                 <TableCell>{row.key}</TableCell>
@@ -94,11 +132,20 @@ const LicenseListPage: React.FC = () => {
                 </TableCell>
               </TableRow>
             ))}
-            {filtered.length === 0 && (
+            {items.length === 0 && (
               <TableRow><TableCell colSpan={5}><Box p={2}>Keine Einträge</Box></TableCell></TableRow>
             )}
           </TableBody>
         </Table>
+        <TablePagination
+          component="div"
+          count={total}
+          page={page}
+          onPageChange={(_, p) => setPage(p)}
+          rowsPerPage={rowsPerPage}
+          onRowsPerPageChange={(e) => { setRowsPerPage(parseInt(e.target.value, 10)); setPage(0); }}
+          rowsPerPageOptions={[10, 25, 50, 100]}
+        />
       </TableContainer>
 
       <ConfirmDialog
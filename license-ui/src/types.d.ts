@@ -8,3 +8,10 @@ export type License = {
   expiresAt?: string;
 };
 
+
+export type LicensePage = {
+  licenses: License[];
+  total: number;
+  page: number;
+  size: number;
+};
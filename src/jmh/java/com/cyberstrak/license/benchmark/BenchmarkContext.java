@@ -0,0 +1,87 @@
+package com.cyberstrak.license.benchmark;
+
+import com.cyberstrak.license.LicenseManagerApplication;
+import com.cyberstrak.license.service.LicenseLineageBackfill;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Boots the application against a fresh in-memory H2 database and seeds a fixed dataset, so runs
+ * are comparable across changes.
+ *
+ * <p>License {@code i} (0 &le; i &lt; {@link #LICENSES}) has serial {@code S<i>} and key {@code
+ * K<i>}. Odd licenses are assigned to {@code ENTITY<i>}, even ones are free. Every tenth license
+ * has an upgrade license {@code UK<i>} upgrading from {@code K<i>}.
+ *
+ * <p>The properties are passed as command-line arguments, which take precedence over the
+ * application and test profile properties files.
+ */
+final class BenchmarkContext {
+  static final int LICENSES = 10_000;
+  static final String PRODUCT = "PROD1";
+
+  private static int databases;
+
+  private BenchmarkContext() {}
+
+  static ConfigurableApplicationContext start(Map<String, Object> properties) {
+    Map<String, Object> args = new LinkedHashMap<>();
+    args.put(
+        "spring.datasource.url", "jdbc:h2:mem:benchmark" + (databases++) + ";DB_CLOSE_DELAY=-1");
+    args.put("server.port", 0);
+    args.put("spring.shell.interactive.enabled", false);
+    // the shell would run the arguments as a command
+    args.put("spring.shell.noninteractive.enabled", false);
+    args.put("logging.level.root", "warn");
+    args.put("logging.level.com.cyberstrak.license", "warn");
+    args.putAll(properties);
+
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(LicenseManagerApplication.class)
+            .profiles("test")
+            .run(
+                args.entrySet().stream()
+                    .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                    .toArray(String[]::new));
+    seed(context);
+    return context;
+  }
+
+  static String key(int i) {
+    return "K" + i;
+  }
+
+  static String serial(int i) {
+    return "S" + i;
+  }
+
+  static String entity(int i) {
+    return "ENTITY" + i;
+  }
+
+  private static void seed(ConfigurableApplicationContext context) {
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < LICENSES; i++) {
+      rows.add(
+          new Object[] {serial(i), key(i), i % 2 == 1 ? entity(i) : null, false, null, now});
+      if (i % 10 == 0) rows.add(new Object[] {"US" + i, "UK" + i, null, true, key(i), now});
+    }
+    jdbc.batchUpdate(
+        "INSERT INTO licenses (serial, license_key, product_id, entity_id, enabled,"
+            + " number_of_seats, is_upgrade, upgrade_from_key, date, version)"
+            + " VALUES (?, ?, '"
+            + PRODUCT
+            + "', ?, TRUE, 1, ?, ?, ?, 0)",
+        rows);
+    context.getBean(LicenseLineageBackfill.class).rebuild();
+  }
+}
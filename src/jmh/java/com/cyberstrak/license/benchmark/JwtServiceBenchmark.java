@@ -0,0 +1,65 @@
+package com.cyberstrak.license.benchmark;
+
+import com.cyberstrak.license.security.JwtService;
+import com.cyberstrak.license.security.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/** Token verification as done by {@code JwtAuthFilter} on every authenticated request. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+  private JwtService jwtService;
+  private String token;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    jwtService =
+        new JwtService(
+            "benchmarksecretthatisatleast32bytes!!", 3600L, 10_000L, new SimpleMeterRegistry());
+    token =
+        jwtService.generateToken(
+            "system",
+            List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_USER")));
+  }
+
+  @Benchmark
+  public Jws<Claims> parse() {
+    return jwtService.parse(token);
+  }
+
+  @Benchmark
+  public VerifiedToken verify() {
+    return jwtService.verify(token);
+  }
+
+  @Benchmark
+  public String extractUsername() {
+    return jwtService.extractUsername(token);
+  }
+
+  @Benchmark
+  public List<String> extractRoles() {
+    return jwtService.extractRoles(token);
+  }
+}
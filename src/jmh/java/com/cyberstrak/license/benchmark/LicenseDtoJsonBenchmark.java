@@ -0,0 +1,64 @@
+package com.cyberstrak.license.benchmark;
+
+import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseService;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+
+/** Serialization of a {@link LicenseDto} with the application's configured {@link ObjectMapper}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LicenseDtoJsonBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private ObjectMapper objectMapper;
+  private ObjectWriter compactWriter;
+  private LicenseDto dto;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start(Map.of());
+    objectMapper = context.getBean(ObjectMapper.class);
+    compactWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    LicenseService licenseService = context.getBean(LicenseService.class);
+    dto =
+        licenseService.toDto(
+            context.getBean(LicenseRepository.class).findById("S1").orElseThrow());
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return objectMapper.writeValueAsBytes(dto);
+  }
+
+  @Benchmark
+  public byte[] serializeCompact() {
+    return compactWriter.writeValueAsBytes(dto);
+  }
+}
@@ -0,0 +1,138 @@
+package com.cyberstrak.license.benchmark;
+
+import static com.cyberstrak.license.benchmark.BenchmarkContext.LICENSES;
+import static com.cyberstrak.license.benchmark.BenchmarkContext.PRODUCT;
+
+import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@link LicenseService} hot paths on the seeded H2 dataset. Writes visit the keys round-robin;
+ * {@code getLicense} cycles through {@link #HOT_KEYS} keys, so with the cache enabled it measures
+ * cache hits and without it the database lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LicenseServiceBenchmark {
+  private static final int HOT_KEYS = 100;
+
+  @Param({"false", "true"})
+  public boolean cache;
+
+  private ConfigurableApplicationContext context;
+  private LicenseService licenseService;
+  private License sample;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start(Map.of("license.cache.enabled", cache));
+    licenseService = context.getBean(LicenseService.class);
+    sample = context.getBean(LicenseRepository.class).findById("S1").orElseThrow();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public LicenseDto toDto() {
+    return licenseService.toDto(sample);
+  }
+
+  @Benchmark
+  public LicenseDto getLicense() {
+    return licenseService.getLicense(BenchmarkContext.key(nextIndex() % HOT_KEYS), PRODUCT);
+  }
+
+  /** The {@code get_license} response body; with the cache enabled, no mapping or serializing. */
+  @Benchmark
+  public byte[] getLicenseJson() {
+    return licenseService.getLicenseJson(BenchmarkContext.key(nextIndex() % HOT_KEYS), PRODUCT);
+  }
+
+  @Benchmark
+  public LicenseDto getLicenseById() {
+    return licenseService.getLicense(BenchmarkContext.serial(nextIndex()));
+  }
+
+  /** Reads all {@link BenchmarkContext#LICENSES} licenses of the seed. */
+  @Benchmark
+  public List<LicenseDto> dumpLicenses() {
+    return licenseService.dumpLicenses();
+  }
+
+  /** Re-activates an assigned license for its own entity, which always succeeds. */
+  @Benchmark
+  public List<LicenseDto> addLicense() {
+    int i = nextIndex() | 1;
+    return licenseService.addLicense(request(BenchmarkContext.key(i), BenchmarkContext.entity(i)));
+  }
+
+  @Benchmark
+  public List<LicenseDto> addUpgradeLicense() {
+    int i = nextIndex() / 10 * 10;
+    return licenseService.addLicense(
+        new AddLicenseRequest(
+            new AddLicenseRequest.LicenseData("UK" + i, PRODUCT),
+            "UPGRADER",
+            BenchmarkContext.key(i)));
+  }
+
+  /** Assigns a free license and releases it again, so each invocation starts from the seed. */
+  @Benchmark
+  public void addAndRemoveLicense() {
+    int i = nextIndex() & ~1;
+    String key = BenchmarkContext.key(i);
+    licenseService.addLicense(request(key, "REMOVER"));
+    LicenseDto dto =
+        new LicenseDto(
+            BenchmarkContext.serial(i),
+            key,
+            PRODUCT,
+            null,
+            true,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null);
+    licenseService.removeLicenses(List.of(dto), "REMOVER");
+  }
+
+  private int nextIndex() {
+    next = next + 1 < LICENSES ? next + 1 : 0;
+    return next;
+  }
+
+  private static AddLicenseRequest request(String key, String entityId) {
+    return new AddLicenseRequest(new AddLicenseRequest.LicenseData(key, PRODUCT), entityId, null);
+  }
+}
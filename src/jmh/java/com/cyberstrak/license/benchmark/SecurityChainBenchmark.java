@@ -0,0 +1,82 @@
+package com.cyberstrak.license.benchmark;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Cost of authenticating one Basic request through Spring Security alone, without the controller:
+ * the stateless callback chain ({@code /get_license}) against the general chain ({@code /info}),
+ * which authenticates through {@code BasicAuthenticationFilter} and the provider manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityChainBenchmark {
+  private static final FilterChain NO_OP = (request, response) -> {};
+
+  private ConfigurableApplicationContext context;
+  private FilterChainProxy filterChainProxy;
+  private ServletContext servletContext;
+  private String authorization;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start(Map.of());
+    filterChainProxy = context.getBean(FilterChainProxy.class);
+    // request matchers of the general chain resolve the application context through it
+    servletContext = ((WebApplicationContext) context).getServletContext();
+    String id = context.getEnvironment().getProperty("issuer.id");
+    String secret = context.getEnvironment().getProperty("issuer.secret");
+    authorization =
+        "Basic "
+            + Base64.getEncoder()
+                .encodeToString((id + ":" + secret).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public int callbackChain() throws Exception {
+    return authenticate("/get_license");
+  }
+
+  @Benchmark
+  public int defaultChain() throws Exception {
+    return authenticate("/info");
+  }
+
+  private int authenticate(String path) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", path);
+    request.addHeader("Authorization", authorization);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filterChainProxy.doFilter(request, response, NO_OP);
+    return response.getStatus();
+  }
+}
@@ -2,9 +2,11 @@ package com.cyberstrak.license;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /** Main application class to bootstrap the Spring Boot License Manager. */
 @SpringBootApplication
+@EnableScheduling
 public class LicenseManagerApplication {
   public static void main(String[] args) {
     SpringApplication.run(LicenseManagerApplication.class, args);
@@ -1,9 +1,17 @@
 package com.cyberstrak.license.cli;
 
+import com.cyberstrak.license.dto.ImportReport;
 import com.cyberstrak.license.entity.License;
 import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseImporter;
+import com.cyberstrak.license.service.LicenseLineageBackfill;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -12,14 +20,22 @@ import org.springframework.stereotype.Component;
 public class CommandLineApp implements CommandLineRunner {
 
   private final LicenseRepository licenseRepo;
+  private final LicenseLineageBackfill lineageBackfill;
+  private final LicenseImporter licenseImporter;
 
-  public CommandLineApp(LicenseRepository licenseRepo) {
+  public CommandLineApp(
+      LicenseRepository licenseRepo,
+      LicenseLineageBackfill lineageBackfill,
+      LicenseImporter licenseImporter) {
     this.licenseRepo = licenseRepo;
+    this.lineageBackfill = lineageBackfill;
+    this.licenseImporter = licenseImporter;
   }
 
   @Override
   public void run(String... args) {
-    if (args.length == 0) return;
+    // --name=value arguments set properties, they are not commands
+    if (args.length == 0 || args[0].startsWith("--")) return;
 
     switch (args[0]) {
       case "create_license" -> createSampleLicenses();
@@ -28,11 +44,21 @@ public class CommandLineApp implements CommandLineRunner {
         if (args.length > 1) showLicense(args[1]);
         else System.err.println("Usage: show_license <serial>");
       }
+      case "rebuild_lineage" ->
+          System.out.println("Lineage rows written: " + lineageBackfill.rebuild());
+      case "import_licenses" -> {
+        if (args.length > 1) importLicenses(args[1], args.length > 2 ? args[2] : null);
+        else System.err.println("Usage: import_licenses <file> [csv|ndjson]");
+      }
       default -> System.err.println("Unknown command: " + args[0]);
     }
   }
 
   private void createSampleLicenses() {
+    if (licenseRepo.existsById("SERIAL_NO_1")) {
+      System.out.println("Sample licenses already exist.");
+      return;
+    }
     License one = new License();
     one.setSerial("SERIAL_NO_1");
     one.setLicenseKey("KEY_1");
@@ -50,6 +76,41 @@ public class CommandLineApp implements CommandLineRunner {
     System.out.println("Sample licenses created.");
   }
 
+  /** Imports a CSV or NDJSON file; the format defaults to the file extension. */
+  private void importLicenses(String file, String format) {
+    String name = format != null ? format : file.substring(file.lastIndexOf('.') + 1);
+    LicenseImporter.Format importFormat =
+        name.equalsIgnoreCase("csv") ? LicenseImporter.Format.CSV : LicenseImporter.Format.NDJSON;
+    long started = System.nanoTime();
+    ImportReport report;
+    try (InputStream in = Files.newInputStream(Path.of(file))) {
+      report =
+          licenseImporter.importLicenses(
+              in,
+              importFormat,
+              progress ->
+                  System.out.printf(
+                      "%d rows read, %d imported, %d failed%n",
+                      progress.rows(), progress.imported(), progress.failed()));
+    } catch (IOException e) {
+      System.err.println("Cannot read " + file + ": " + e.getMessage());
+      return;
+    }
+    report
+        .errors()
+        .forEach(e -> System.err.printf("Row %d (%s): %s%n", e.row(), e.serial(), e.message()));
+    if (report.errors().size() < report.failed()) {
+      System.err.println("... " + (report.failed() - report.errors().size()) + " more failed rows");
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "Imported %d of %d licenses in %.1f s, %d rows failed%n",
+        report.imported(),
+        report.rows(),
+        (System.nanoTime() - started) / 1e9,
+        report.failed());
+  }
+
   private void listAllLicenses() {
     licenseRepo.findAll().forEach(System.out::println);
   }
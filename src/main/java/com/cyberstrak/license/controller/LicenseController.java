@@ -1,19 +1,36 @@
 package com.cyberstrak.license.controller;
 
 import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.BatchRequest;
+import com.cyberstrak.license.dto.BatchResponse;
 import com.cyberstrak.license.dto.CreateLicenseRequest;
+import com.cyberstrak.license.dto.ImportReport;
 import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.dto.LicensePage;
+import com.cyberstrak.license.dto.LicenseSearchRequest;
 import com.cyberstrak.license.dto.LicenseUpsertRequest;
 import com.cyberstrak.license.dto.RemoveLicenseRequest;
+import com.cyberstrak.license.service.LicenseImporter;
 import com.cyberstrak.license.service.LicenseService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
 
 /** REST controller for managing license endpoints. */
 @RestController
@@ -21,11 +38,19 @@ import org.springframework.web.bind.annotation.*;
 public class LicenseController {
   private static final Logger logger = LoggerFactory.getLogger(LicenseController.class);
 
+  private static final String NDJSON_VALUE = "application/x-ndjson";
+  private static final String CSV_VALUE = "text/csv";
+
   private final LicenseService licenseService;
+  private final LicenseImporter licenseImporter;
+  private final ObjectMapper objectMapper;
 
   @Autowired
-  public LicenseController(LicenseService licenseService) {
+  public LicenseController(
+      LicenseService licenseService, LicenseImporter licenseImporter, ObjectMapper objectMapper) {
     this.licenseService = licenseService;
+    this.licenseImporter = licenseImporter;
+    this.objectMapper = objectMapper;
   }
 
   @GetMapping("/")
@@ -68,12 +93,26 @@ public class LicenseController {
     return ResponseEntity.ok().build();
   }
 
+  /** Writes the cached, pre-serialized license as is; see {@link LicenseService#getLicenseJson}. */
   @GetMapping("/get_license")
-  public ResponseEntity<LicenseDto> getLicense(
+  public ResponseEntity<byte[]> getLicense(
       @RequestParam("key") String key, @RequestParam("aud") String aud) {
-    LicenseDto license = licenseService.getLicense(key, aud);
-    logger.debug("Returning license: {}", license);
-    return ResponseEntity.ok(license);
+    byte[] license = licenseService.getLicenseJson(key, aud);
+    if (logger.isDebugEnabled()) {
+      logger.debug("Returning license: {}", new String(license, StandardCharsets.UTF_8));
+    }
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(license);
+  }
+
+  /**
+   * Applies a list of add, remove and get operations in one request and transaction. The response
+   * is always 200 and carries a status per operation; a failing operation does not affect the
+   * others.
+   */
+  @PostMapping("/batch_licenses")
+  public ResponseEntity<BatchResponse> batchLicenses(@Valid @RequestBody BatchRequest request) {
+    logger.debug("Applying batch of {} operations", request.operations().size());
+    return ResponseEntity.ok(licenseService.executeBatch(request.operations()));
   }
 
   @PostMapping("/erase_license")
@@ -83,16 +122,73 @@ public class LicenseController {
     return ResponseEntity.ok(license);
   }
 
+  /**
+   * Streams all licenses in serial order, either as a JSON array or, when requested via {@code
+   * format=ndjson} or an {@code Accept: application/x-ndjson} header, as newline-delimited JSON.
+   * Clients resume a partial dump by passing the id of the last license received as {@code
+   * cursor}.
+   */
   @GetMapping("/dump_licenses")
-  public ResponseEntity<?> dumpLicenses() {
-    var licenses = licenseService.dumpLicenses();
-    logger.debug("Returning all licenses: {}", licenses);
-    return ResponseEntity.ok(licenses);
+  public void dumpLicenses(
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", defaultValue = "0") long limit,
+      @RequestParam(name = "format", required = false) String format,
+      @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+      HttpServletResponse response)
+      throws IOException {
+    boolean ndjson =
+        "ndjson".equalsIgnoreCase(format)
+            || (format == null && accept != null && accept.contains(NDJSON_VALUE));
+    ObjectWriter writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+    response.setContentType(ndjson ? NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    OutputStream out = response.getOutputStream();
+    boolean[] first = {true};
+
+    if (!ndjson) out.write('[');
+    long count =
+        licenseService.streamLicenses(
+            cursor,
+            limit,
+            dto -> {
+              try {
+                if (ndjson) {
+                  out.write(writer.writeValueAsBytes(dto));
+                  out.write('\n');
+                } else {
+                  if (!first[0]) out.write(',');
+                  out.write(writer.writeValueAsBytes(dto));
+                }
+                first[0] = false;
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+    if (!ndjson) out.write(']');
+    out.flush();
+    logger.debug("Streamed {} licenses after cursor: {}", count, cursor);
   }
 
   @GetMapping("/api/licenses")
-  public ResponseEntity<?> licenses() {
-    return dumpLicenses();
+  public void licenses(
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", defaultValue = "0") long limit,
+      @RequestParam(name = "format", required = false) String format,
+      @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+      HttpServletResponse response)
+      throws IOException {
+    dumpLicenses(cursor, limit, format, accept, response);
+  }
+
+  @GetMapping("/api/licenses/search")
+  public ResponseEntity<LicensePage> searchLicenses(
+      LicenseSearchRequest criteria,
+      @RequestParam(name = "page", defaultValue = "0") int page,
+      @RequestParam(name = "size", defaultValue = "50") int size,
+      @RequestParam(name = "sort", required = false) String sort) {
+    logger.debug("Search licenses: {}, page: {}, size: {}, sort: {}", criteria, page, size, sort);
+    return ResponseEntity.ok(licenseService.searchLicenses(criteria, page, size, sort));
   }
 
   @GetMapping("/api/licenses/{id}")
@@ -107,6 +203,30 @@ public class LicenseController {
     return ResponseEntity.ok(license);
   }
 
+  @GetMapping("/api/licenses/{key}/lineage")
+  public ResponseEntity<List<LicenseDto>> getUpgradeFamily(@PathVariable("key") String key) {
+    List<LicenseDto> family = licenseService.getUpgradeFamily(key);
+    logger.debug("Returning upgrade family of {}: {}", key, family);
+    return ResponseEntity.ok(family);
+  }
+
+  @GetMapping("/api/entities/{entityId}/licenses")
+  public ResponseEntity<List<LicenseDto>> getEntityLicenses(
+      @PathVariable("entityId") String entityId) {
+    List<LicenseDto> licenses = licenseService.getEntityLicenses(entityId);
+    logger.debug("Returning licenses of entity {}: {}", entityId, licenses);
+    return ResponseEntity.ok(licenses);
+  }
+
+  /** Releases everything {@code entityId} holds and returns the released licenses. */
+  @DeleteMapping("/api/entities/{entityId}/licenses")
+  public ResponseEntity<List<LicenseDto>> releaseEntity(
+      @PathVariable("entityId") String entityId) {
+    List<LicenseDto> released = licenseService.releaseEntity(entityId);
+    logger.debug("Released licenses of entity {}: {}", entityId, released);
+    return ResponseEntity.ok(released);
+  }
+
   @PutMapping("/api/licenses/{key}")
   public ResponseEntity<LicenseDto> updateLicense(
       @PathVariable("key") String key, @Valid @RequestBody LicenseUpsertRequest payload) {
@@ -128,4 +248,32 @@ public class LicenseController {
     }
     return ResponseEntity.ok(license);
   }
+
+  /**
+   * Imports the uploaded CSV ({@code text/csv}) or NDJSON ({@code application/x-ndjson}) body as it
+   * arrives; see {@link LicenseImporter}. Rejected rows are listed in the report, not failed.
+   */
+  @PostMapping(
+      path = "/api/licenses/import",
+      consumes = {CSV_VALUE, NDJSON_VALUE})
+  public ResponseEntity<ImportReport> importLicenses(HttpServletRequest request)
+      throws IOException {
+    MediaType contentType = MediaType.parseMediaType(request.getContentType());
+    LicenseImporter.Format format =
+        contentType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))
+            ? LicenseImporter.Format.CSV
+            : LicenseImporter.Format.NDJSON;
+    ImportReport report =
+        licenseImporter.importLicenses(
+            request.getInputStream(),
+            format,
+            progress ->
+                logger.debug(
+                    "Import progress: {} rows, {} imported, {} failed",
+                    progress.rows(),
+                    progress.imported(),
+                    progress.failed()));
+    logger.debug("Imported {} of {} licenses", report.imported(), report.rows());
+    return ResponseEntity.ok(report);
+  }
 }
@@ -0,0 +1,19 @@
+package com.cyberstrak.license.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+
+/** Request body of {@code /batch_licenses}: add, remove and get operations applied in order. */
+public record BatchRequest(@NotNull List<@NotNull Operation> operations) {
+  /**
+   * A single operation; {@code op} is one of {@code add}, {@code remove} or {@code get} and selects
+   * which of the remaining fields are read, mirroring the bodies of the single-item endpoints. A
+   * missing or unknown {@code op} fails only this operation.
+   */
+  public record Operation(
+      String op,
+      AddLicenseRequest.LicenseData license,
+      String entityId,
+      String precondition,
+      RemoveLicenseRequest.LicenseCluster licenseCluster) {}
+}
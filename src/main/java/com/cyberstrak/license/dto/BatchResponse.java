@@ -0,0 +1,9 @@
+package com.cyberstrak.license.dto;
+
+import java.util.List;
+
+/** Response body of {@code /batch_licenses}, one result per operation in request order. */
+public record BatchResponse(List<Result> results) {
+  /** Outcome of one operation: the HTTP status the single-item endpoint would have returned. */
+  public record Result(int index, int status, List<LicenseDto> licenses, String error) {}
+}
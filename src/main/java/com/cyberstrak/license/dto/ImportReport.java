@@ -0,0 +1,12 @@
+package com.cyberstrak.license.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk import: rows read, licenses imported and rows rejected. {@code errors} lists the
+ * rejected rows, up to {@code license.import.max-errors} of them.
+ */
+public record ImportReport(long rows, long imported, long failed, List<RowError> errors) {
+  /** A rejected row, numbered from 1 in the order read, not counting a CSV header. */
+  public record RowError(long row, String serial, String message) {}
+}
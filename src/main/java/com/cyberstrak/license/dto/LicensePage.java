@@ -0,0 +1,5 @@
+package com.cyberstrak.license.dto;
+
+import java.util.List;
+
+public record LicensePage(List<LicenseDto> licenses, long total, int page, int size) {}
@@ -0,0 +1,15 @@
+package com.cyberstrak.license.dto;
+
+/**
+ * Filter criteria for the admin license search. All criteria are optional and combined with AND;
+ * {@code key} matches as a prefix and the expiration bounds are epoch seconds (inclusive). The
+ * prefix is compared in the collation of license_key: case-sensitive on H2 and PostgreSQL,
+ * case-insensitive on SQLite and on MariaDB with its default collation.
+ */
+public record LicenseSearchRequest(
+    String key,
+    String productId,
+    String entityId,
+    Boolean enabled,
+    Long expiresAfter,
+    Long expiresBefore) {}
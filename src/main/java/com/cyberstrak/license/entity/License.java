@@ -2,11 +2,19 @@ package com.cyberstrak.license.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
-
-/** Represents a software license entity with optional upgrade chain support. */
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Represents a software license entity with optional upgrade chain support.
+ *
+ * <p>The serial is assigned, not generated, so the license tracks whether it is new itself: a
+ * license created with {@code new} is saved with a plain INSERT instead of a SELECT followed by a
+ * merge. Licenses read by JPA are not new. Licenses mapped by hand from JDBC rows are new; they
+ * are read-only and must not be saved.
+ */
 @Entity
 @Table(name = "licenses")
-public class License {
+public class License implements Persistable<String> {
 
   @Id private String serial;
 
@@ -40,7 +48,60 @@ public class License {
   @Column(length = 1024)
   private String comment;
 
+  // Optimistic lock, also bumped by the conditional bulk updates in LicenseRepository
+  @Version
+  @Column(nullable = false)
+  private long version;
+
+  @Transient private boolean isNew = true;
+
+  // Key and upgrade link as last written to the lineage closure table; null while new
+  @Transient private String linkedKey;
+
+  @Transient private String linkedUpgradeFromKey;
+
+  @Override
+  public String getId() {
+    return serial;
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  void markLoaded() {
+    isNew = false;
+    markLinked();
+  }
+
+  @PostPersist
+  void markNotNew() {
+    isNew = false;
+  }
+
+  /** The license key the lineage was last recorded with, or {@code null} if it never was. */
+  public String getLinkedKey() {
+    return linkedKey;
+  }
+
+  /** The upgrade link the lineage was last recorded with. */
+  public String getLinkedUpgradeFromKey() {
+    return linkedUpgradeFromKey;
+  }
+
+  /** Records that the lineage closure table matches the current key and upgrade link. */
+  public void markLinked() {
+    linkedKey = licenseKey;
+    linkedUpgradeFromKey = upgradeFromKey;
+  }
+
   // Getters & Setters
+  public long getVersion() {
+    return version;
+  }
+
   public String getSerial() {
     return serial;
   }
@@ -0,0 +1,20 @@
+package com.cyberstrak.license.exception;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** Resolves the HTTP status a domain exception is answered with, as in GlobalExceptionHandler. */
+public final class ExceptionStatus {
+
+  private ExceptionStatus() {}
+
+  /** Returns the status of a domain exception, or {@code null} for any other exception. */
+  public static HttpStatus of(Throwable e) {
+    if (e instanceof ObjectOptimisticLockingFailureException) return HttpStatus.CONFLICT;
+    ResponseStatus status =
+        AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+    return status != null ? status.code() : null;
+  }
+}
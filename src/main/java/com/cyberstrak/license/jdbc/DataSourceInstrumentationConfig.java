@@ -0,0 +1,37 @@
+package com.cyberstrak.license.jdbc;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Routes every {@link DataSource} bean through an {@link InstrumentedDataSource}, which counts
+ * statements for the {@link SqlStatementCounter} and times them in the {@link SqlStatementMonitor}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourceInstrumentationConfig {
+
+  /** Upper bound of distinct query shapes in {@value SqlStatementMonitor#TIMER}. */
+  static final int MAX_SHAPES = 200;
+
+  @Bean
+  static BeanPostProcessor instrumentedDataSource(ObjectProvider<SqlStatementMonitor> monitor) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource ds && !(bean instanceof InstrumentedDataSource)
+            ? new InstrumentedDataSource(ds, monitor)
+            : bean;
+      }
+    };
+  }
+
+  @Bean
+  MeterFilter sqlStatementShapeLimit() {
+    return MeterFilter.maximumAllowableTags(
+        SqlStatementMonitor.TIMER, "shape", MAX_SHAPES, MeterFilter.deny());
+  }
+}
@@ -0,0 +1,138 @@
+package com.cyberstrak.license.jdbc;
+
+import com.cyberstrak.license.web.ServerTiming;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source whose connections count every statement they prepare and whose statements report
+ * their SQL, bound parameters and execution time to the {@link SqlStatementMonitor}.
+ */
+final class InstrumentedDataSource extends DelegatingDataSource {
+
+  private final ObjectProvider<SqlStatementMonitor> monitorProvider;
+  private volatile SqlStatementMonitor monitor;
+
+  InstrumentedDataSource(DataSource target, ObjectProvider<SqlStatementMonitor> monitorProvider) {
+    super(target);
+    this.monitorProvider = monitorProvider;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return connection(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return connection(super.getConnection(username, password));
+  }
+
+  private SqlStatementMonitor monitor() {
+    SqlStatementMonitor m = monitor;
+    if (m == null) {
+      m = monitorProvider.getIfAvailable();
+      monitor = m;
+    }
+    return m;
+  }
+
+  private Connection connection(Connection target) {
+    return proxy(
+        Connection.class,
+        (proxy, method, args) -> {
+          Object result = invoke(target, method, args);
+          if (result instanceof Statement statement) {
+            SqlStatementCounter.increment();
+            String sql = args != null && args[0] instanceof String s ? s : null;
+            return proxy(method.getReturnType(), new StatementHandler(statement, sql));
+          }
+          return result;
+        });
+  }
+
+  /** Tracks the SQL and parameters of one statement and times its executions. */
+  private final class StatementHandler implements InvocationHandler {
+    private final Statement target;
+    private String sql;
+    private Object[] parameters = new Object[0];
+    private int batchSize;
+
+    StatementHandler(Statement target, String sql) {
+      this.target = target;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      switch (name) {
+        case "execute",
+            "executeQuery",
+            "executeUpdate",
+            "executeLargeUpdate",
+            "executeBatch",
+            "executeLargeBatch" -> {
+          return execute(method, args);
+        }
+        case "addBatch" -> {
+          if (args != null && sql == null) sql = (String) args[0];
+          batchSize++;
+        }
+        case "clearBatch" -> batchSize = 0;
+        case "clearParameters" -> parameters = new Object[0];
+        default -> {
+          if (name.startsWith("set") && args != null && args.length >= 2) {
+            if (args[0] instanceof Integer index) bind(index, name.equals("setNull") ? null : args[1]);
+          }
+        }
+      }
+      return InstrumentedDataSource.invoke(target, method, args);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+      String statementSql = args != null && args[0] instanceof String s ? s : sql;
+      int batch = batchSize;
+      batchSize = 0;
+      long started = System.nanoTime();
+      try {
+        return InstrumentedDataSource.invoke(target, method, args);
+      } finally {
+        long nanos = System.nanoTime() - started;
+        SqlStatementCounter.executed(nanos);
+        SqlStatementMonitor m = monitor();
+        if (m != null) m.executed(statementSql, parameters, batch, nanos);
+        ServerTiming timing = ServerTiming.current();
+        if (timing != null) timing.add(ServerTiming.DB, nanos);
+      }
+    }
+
+    private void bind(int index, Object value) {
+      if (index < 1) return;
+      if (index > parameters.length) parameters = Arrays.copyOf(parameters, index);
+      parameters[index - 1] = value;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.cyberstrak.license.jdbc;
+
+/**
+ * Counts the JDBC statements prepared on the current thread between {@link #start()} and {@link
+ * #stop()}. Every statement Hibernate, Spring Data or a {@code JdbcTemplate} sends goes through a
+ * connection of the {@link InstrumentedDataSource}; a JDBC batch counts once, as it is one round
+ * trip.
+ *
+ * <p>Independently of counting, it keeps a running total of the time each thread spent executing
+ * statements, so callers can take the database time of an operation as a difference.
+ */
+public final class SqlStatementCounter {
+
+  private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+  private static final ThreadLocal<long[]> ELAPSED = ThreadLocal.withInitial(() -> new long[1]);
+
+  private SqlStatementCounter() {}
+
+  /** Starts counting on the current thread, discarding any previous count. */
+  public static void start() {
+    COUNT.set(new int[1]);
+  }
+
+  /** Returns the statements counted so far, or 0 if counting was not started. */
+  public static int current() {
+    int[] count = COUNT.get();
+    return count != null ? count[0] : 0;
+  }
+
+  /** Stops counting on the current thread and returns the number of statements counted. */
+  public static int stop() {
+    int count = current();
+    COUNT.remove();
+    return count;
+  }
+
+  /** Returns the nanoseconds this thread has spent executing statements so far. */
+  public static long elapsedNanos() {
+    return ELAPSED.get()[0];
+  }
+
+  static void executed(long nanos) {
+    ELAPSED.get()[0] += nanos;
+  }
+
+  static void increment() {
+    int[] count = COUNT.get();
+    if (count != null) count[0]++;
+  }
+}
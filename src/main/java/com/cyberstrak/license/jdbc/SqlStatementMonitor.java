@@ -0,0 +1,115 @@
+package com.cyberstrak.license.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every SQL statement in the {@value #TIMER} timer, tagged with the shape of the query, and
+ * logs statements slower than {@code license.sql.slow-query-threshold} with their bound parameters
+ * and the service method that ran them.
+ *
+ * <p>The shape is the SQL with whitespace collapsed, literals replaced by {@code ?} and {@code IN}
+ * lists folded to {@code (?...)}, so that one query issued with different arguments shares a
+ * time series.
+ */
+@Component
+public class SqlStatementMonitor {
+  private static final Logger logger = LoggerFactory.getLogger(SqlStatementMonitor.class);
+
+  public static final String TIMER = "jdbc.statements";
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+  private static final int MAX_PARAMETER_LENGTH = 100;
+  private static final String SERVICE_PACKAGE = "com.cyberstrak.license.service.";
+
+  private final MeterRegistry meterRegistry;
+  private final long thresholdNanos;
+
+  // timers by raw SQL, so that the shape is computed once per statement text
+  private final Cache<String, Timer> timers = Caffeine.newBuilder().maximumSize(1_000).build();
+
+  public SqlStatementMonitor(
+      MeterRegistry meterRegistry,
+      @Value("${license.sql.slow-query-threshold:250ms}") Duration threshold) {
+    this.meterRegistry = meterRegistry;
+    this.thresholdNanos = threshold.toNanos();
+  }
+
+  /**
+   * Records one execution of {@code sql}.
+   *
+   * @param parameters parameters bound by index, for a batch those of its last row
+   * @param batchSize number of rows of an executed batch, 0 for a single execution
+   */
+  void executed(String sql, Object[] parameters, int batchSize, long nanos) {
+    String key = sql != null ? sql : "";
+    timers.get(key, this::timer).record(nanos, TimeUnit.NANOSECONDS);
+    if (nanos >= thresholdNanos && logger.isWarnEnabled()) {
+      logger.warn(
+          "Slow SQL statement ({} ms{}) in {}: {} parameters {}",
+          TimeUnit.NANOSECONDS.toMillis(nanos),
+          batchSize > 0 ? ", batch of " + batchSize : "",
+          caller(),
+          WHITESPACE.matcher(key).replaceAll(" ").trim(),
+          format(parameters));
+    }
+  }
+
+  static String shape(String sql) {
+    String shape = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+    shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+    shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    return PARAMETER_LIST.matcher(shape).replaceAll("?...");
+  }
+
+  private Timer timer(String sql) {
+    return Timer.builder(TIMER)
+        .description("Execution time of SQL statements by query shape")
+        .tag("shape", shape(sql))
+        .register(meterRegistry);
+  }
+
+  /** The outermost service method on the stack, e.g. {@code LicenseService.addLicense}. */
+  private static String caller() {
+    return StackWalker.getInstance()
+        .walk(
+            frames ->
+                frames
+                    .filter(f -> f.getClassName().startsWith(SERVICE_PACKAGE))
+                    .filter(f -> !f.getClassName().contains("$$"))
+                    .filter(f -> !f.getMethodName().startsWith("lambda$"))
+                    .reduce((inner, outer) -> outer)
+                    .map(
+                        f ->
+                            f.getClassName().substring(SERVICE_PACKAGE.length())
+                                + "."
+                                + f.getMethodName())
+                    .orElse("unknown"));
+  }
+
+  private static String format(Object[] parameters) {
+    return Arrays.stream(parameters)
+        .map(
+            p -> {
+              String s = String.valueOf(p);
+              return s.length() > MAX_PARAMETER_LENGTH
+                  ? s.substring(0, MAX_PARAMETER_LENGTH) + "..."
+                  : s;
+            })
+        .collect(Collectors.joining(", ", "[", "]"));
+  }
+}
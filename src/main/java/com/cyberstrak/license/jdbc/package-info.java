@@ -0,0 +1,2 @@
+/** JDBC instrumentation shared by the web layer and the tests. */
+package com.cyberstrak.license.jdbc;
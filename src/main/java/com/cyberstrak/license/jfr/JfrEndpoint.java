@@ -0,0 +1,146 @@
+package com.cyberstrak.license.jfr;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Controls one continuous flight recording, bounded by {@code license.jfr.max-age} and {@code
+ * license.jfr.max-size}:
+ *
+ * <ul>
+ *   <li>{@code GET /actuator/jfr} reports its state
+ *   <li>{@code POST /actuator/jfr/start} and {@code /stop} start and stop it
+ *   <li>{@code GET /actuator/jfr/dump} downloads what it recorded so far as a {@code .jfr} file
+ * </ul>
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint implements DisposableBean {
+  private static final String NAME = "license-manager";
+
+  private final String settings;
+  private final Duration maxAge;
+  private final DataSize maxSize;
+  private Recording recording;
+
+  public JfrEndpoint(
+      @Value("${license.jfr.settings:default}") String settings,
+      @Value("${license.jfr.max-age:30m}") Duration maxAge,
+      @Value("${license.jfr.max-size:100MB}") DataSize maxSize) {
+    this.settings = settings;
+    this.maxAge = maxAge;
+    this.maxSize = maxSize;
+  }
+
+  @ReadOperation
+  public synchronized Map<String, Object> status() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("state", recording != null ? recording.getState().name() : "NONE");
+    status.put("settings", settings);
+    status.put("maxAge", maxAge.toString());
+    status.put("maxSize", maxSize.toBytes());
+    if (recording != null) {
+      status.put("startTime", String.valueOf(recording.getStartTime()));
+      status.put("size", recording.getSize());
+    }
+    return status;
+  }
+
+  @WriteOperation
+  public synchronized WebEndpointResponse<Map<String, Object>> control(@Selector String action) {
+    switch (action) {
+      case "start" -> start();
+      case "stop" -> {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) recording.stop();
+      }
+      default -> {
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+      }
+    }
+    return new WebEndpointResponse<>(status());
+  }
+
+  @ReadOperation(produces = "application/octet-stream")
+  public synchronized WebEndpointResponse<Resource> dump(@Selector String action)
+      throws IOException {
+    if (!"dump".equals(action)
+        || recording == null
+        || recording.getState() == RecordingState.NEW) {
+      return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+    Path file = Files.createTempFile(NAME + "-", ".jfr");
+    recording.dump(file);
+    return new WebEndpointResponse<>(new TemporaryFileResource(file));
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (recording != null) recording.close();
+  }
+
+  private void start() {
+    if (recording != null && recording.getState() == RecordingState.RUNNING) return;
+    if (recording != null) recording.close();
+    try {
+      recording = new Recording(Configuration.getConfiguration(settings));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Invalid JFR settings '" + settings + "'", e);
+    }
+    recording.setName(NAME);
+    recording.setToDisk(true);
+    recording.setMaxAge(maxAge);
+    recording.setMaxSize(maxSize.toBytes());
+    recording.start();
+  }
+
+  /** Deletes the dump once the response has read it. */
+  private static final class TemporaryFileResource extends FileSystemResource {
+    TemporaryFileResource(Path file) {
+      super(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return new FilterInputStream(super.getInputStream()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            Files.deleteIfExists(getFile().toPath());
+          }
+        }
+      };
+    }
+
+    @Override
+    public boolean isFile() {
+      // not a plain file, so that the response streams it through getInputStream()
+      return false;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.cyberstrak.license.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Verification of a bearer token, answered from the cache or by checking its signature. */
+@Name("com.cyberstrak.license.JwtVerification")
+@Label("JWT Verification")
+@Category("License Manager")
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+  @Label("Cached")
+  public boolean cached;
+
+  @Label("Outcome")
+  public String outcome;
+}
@@ -0,0 +1,34 @@
+package com.cyberstrak.license.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** One license operation, with the same operation, outcome and path as its metrics. */
+@Name("com.cyberstrak.license.Operation")
+@Label("License Operation")
+@Category("License Manager")
+@Description("A create, add, remove, get, erase, update, dump or batch call of LicenseService")
+@StackTrace(false)
+public class LicenseOperationEvent extends Event {
+  @Label("Operation")
+  public String operation;
+
+  @Label("Product Id")
+  public String productId;
+
+  @Label("Path")
+  @Description("plain, upgrade or seat for add, none otherwise")
+  public String path;
+
+  @Label("Outcome")
+  public String outcome;
+
+  @Label("DB Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long dbTime;
+}
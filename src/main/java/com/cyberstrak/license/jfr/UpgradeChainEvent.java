@@ -0,0 +1,31 @@
+package com.cyberstrak.license.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** Resolution of the upgrade chain of a precondition key during an upgrade activation. */
+@Name("com.cyberstrak.license.UpgradeChain")
+@Label("Upgrade Chain")
+@Category("License Manager")
+@StackTrace(false)
+public class UpgradeChainEvent extends Event {
+  @Label("License Key")
+  public String licenseKey;
+
+  @Label("Chain Length")
+  public int chainLength;
+
+  @Label("Cyclic")
+  public boolean cyclic;
+
+  @Label("Truncated")
+  public boolean truncated;
+
+  @Label("DB Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long dbTime;
+}
@@ -0,0 +1,2 @@
+/** JDK Flight Recorder events and the actuator endpoint that records them. */
+package com.cyberstrak.license.jfr;
@@ -0,0 +1,66 @@
+package com.cyberstrak.license.repository;
+
+import com.cyberstrak.license.entity.License;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the lineage closure table in step with every license written through JPA, whichever
+ * service or repository call wrote it. New licenses and changed keys or upgrade links are
+ * recorded after each flush, once the batched statements have reached the database; removed
+ * licenses lose their rows before their own DELETE.
+ */
+@Component
+class LicenseLineageInterceptor implements Interceptor, HibernatePropertiesCustomizer {
+
+  // the repository needs the entity manager factory this interceptor is registered with
+  private final ObjectProvider<LicenseRepository> licenseRepo;
+
+  LicenseLineageInterceptor(ObjectProvider<LicenseRepository> licenseRepo) {
+    this.licenseRepo = licenseRepo;
+  }
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    hibernateProperties.put(AvailableSettings.INTERCEPTOR, this);
+  }
+
+  @Override
+  public void postFlush(Iterator<Object> entities) {
+    while (entities.hasNext()) {
+      if (entities.next() instanceof License l) link(l);
+    }
+  }
+
+  @Override
+  public void onRemove(
+      Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+    if (entity instanceof License l && l.getLinkedKey() != null) {
+      licenseRepo.getObject().deleteLineage(l.getSerial());
+    }
+  }
+
+  private void link(License l) {
+    String key = l.getLinkedKey();
+    if (key == null) {
+      licenseRepo.getObject().insertLineage(l.getSerial(), l.getUpgradeFromKey());
+    } else {
+      if (!Objects.equals(l.getLinkedUpgradeFromKey(), l.getUpgradeFromKey())) {
+        licenseRepo.getObject().relinkLineage(l.getSerial(), l.getUpgradeFromKey());
+      }
+      if (!key.equals(l.getLicenseKey())) {
+        // upgrades from the old key lose their ancestors, those from the new key gain them
+        licenseRepo.getObject().relinkUpgradesFrom(List.of(key, l.getLicenseKey()));
+      }
+    }
+    l.markLinked();
+  }
+}
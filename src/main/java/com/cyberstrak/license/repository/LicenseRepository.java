@@ -1,14 +1,111 @@
 package com.cyberstrak.license.repository;
 
 import com.cyberstrak.license.entity.License;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /** Repository interface for accessing License entities using Spring Data JPA. */
 @Repository
-public interface LicenseRepository extends JpaRepository<License, String> {
+public interface LicenseRepository
+    extends JpaRepository<License, String>,
+        JpaSpecificationExecutor<License>,
+        LicenseRepositoryCustom {
   Optional<License> findByLicenseKeyAndProductId(String licenseKey, String productId);
 
   Optional<License> findByLicenseKey(String licenseKey);
+
+  /** Selects {@link LicenseView}s instead of entities; the queries below append their filter. */
+  String SELECT_VIEW =
+      "select new com.cyberstrak.license.repository.LicenseView(l.serial, l.licenseKey,"
+          + " l.productId, l.entityId, l.enabled, l.expirationDate, l.numberOfSeats, l.email,"
+          + " l.comment) from License l";
+
+  /**
+   * Reads all licenses as {@link LicenseView}s in serial order, without loading them into the
+   * persistence context.
+   */
+  @Query(SELECT_VIEW + " order by l.serial")
+  List<LicenseView> findAllViews();
+
+  /** Reads one license as a {@link LicenseView}, like {@link #findByLicenseKeyAndProductId}. */
+  @Query(SELECT_VIEW + " where l.licenseKey = :key and l.productId = :productId")
+  Optional<LicenseView> findViewByLicenseKeyAndProductId(
+      @Param("key") String licenseKey, @Param("productId") String productId);
+
+  /** Reads one license as a {@link LicenseView}, like {@link #findById}. */
+  @Query(SELECT_VIEW + " where l.serial = :serial")
+  Optional<LicenseView> findViewById(@Param("serial") String serial);
+
+  /**
+   * Loads all licenses referenced by key or by serial in a single query. The union lets each half
+   * use its own index, where an {@code or} across both columns scans the table.
+   */
+  @Query(
+      "select l from License l where l.licenseKey in :keys"
+          + " union select l from License l where l.serial in :serials")
+  List<License> findAllByKeysOrSerials(
+      @Param("keys") Collection<String> keys, @Param("serials") Collection<String> serials);
+
+  /**
+   * Unassigns the given licenses in one statement, skipping any that are no longer assigned to
+   * {@code entityId}. Returns the number of released licenses.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "update License l set l.entityId = null, l.date = :date, l.version = l.version + 1"
+          + " where l.serial in :serials and l.entityId = :entityId")
+  int releaseFromEntity(
+      @Param("serials") Collection<String> serials,
+      @Param("entityId") String entityId,
+      @Param("date") LocalDateTime date);
+
+  /**
+   * Assigns the license to {@code entityId} if it is enabled and still unassigned or already
+   * assigned to the same entity. The check and the write are one statement, so of several
+   * concurrent callers exactly one wins without holding a lock across the request. Returns 1 on
+   * success and 0 if the license was taken or disabled in the meantime.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "update License l set l.entityId = :entityId, l.date = :date, l.version = l.version + 1"
+          + " where l.serial = :serial and l.enabled = true"
+          + " and (l.entityId is null or l.entityId = :entityId)")
+  int assignToEntity(
+      @Param("serial") String serial,
+      @Param("entityId") String entityId,
+      @Param("date") LocalDateTime date);
+
+  /**
+   * {@link #assignToEntity} for callers that keep working with the licenses they loaded: the
+   * persistence context is left as it is, so an assigned license must be refreshed before it is
+   * changed again.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query(
+      "update License l set l.entityId = :entityId, l.date = :date, l.version = l.version + 1"
+          + " where l.serial = :serial and l.enabled = true"
+          + " and (l.entityId is null or l.entityId = :entityId)")
+  int assignLoadedToEntity(
+      @Param("serial") String serial,
+      @Param("entityId") String entityId,
+      @Param("date") LocalDateTime date);
+
+  /**
+   * Disables those of the given licenses that are still enabled and expired at {@code now}, in one
+   * statement. Returns the number of disabled licenses.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "update License l set l.enabled = false, l.version = l.version + 1"
+          + " where l.serial in :serials and l.enabled = true and l.expirationDate <= :now")
+  int disableExpired(
+      @Param("serials") Collection<String> serials, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,115 @@
+package com.cyberstrak.license.repository;
+
+import com.cyberstrak.license.entity.License;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/** Plain JDBC queries for read paths that must not fill the persistence context. */
+public interface LicenseRepositoryCustom {
+
+  /**
+   * Returns at most {@code limit} licenses whose serial sorts after {@code cursor}, ordered by
+   * serial. A {@code null} cursor starts at the beginning of the table. The returned entities are
+   * detached and never enter the persistence context.
+   */
+  List<License> findPageAfter(String cursor, int limit);
+
+  /**
+   * Resolves the upgrade chain that starts at the license with {@code licenseKey} and follows
+   * {@code upgrade_from_key} towards the original license, using a single recursive query. At most
+   * {@code maxDepth} licenses are returned; the walk also stops at the first license that would
+   * repeat, so cyclic data cannot make it loop.
+   */
+  UpgradeChain findUpgradeChain(String licenseKey, int maxDepth);
+
+  /**
+   * Returns the license with {@code licenseKey} followed by its ancestors, nearest first, from the
+   * lineage closure table. Empty if the key is unknown or its lineage has not been recorded yet.
+   */
+  List<License> findLineageByKey(String licenseKey);
+
+  /**
+   * Returns the whole upgrade family of the license with {@code licenseKey}: the original license
+   * of its lineage followed by all of its descendants, ordered by depth.
+   */
+  List<License> findUpgradeFamily(String licenseKey);
+
+  /**
+   * Records the lineage of a newly stored license: a row to itself, the lineage of the licenses
+   * already upgrading from its key below it and, if {@code upgradeFromKey} is set, a row per
+   * ancestor of that license for the new license and each of those descendants.
+   */
+  void insertLineage(String serial, String upgradeFromKey);
+
+  /**
+   * Returns the licenses held by {@code entityId} in serial order: those assigned to it and the
+   * multi-seat licenses on which it holds a seat.
+   */
+  List<License> findByEntityId(String entityId);
+
+  /**
+   * Returns up to {@code limit} enabled licenses that expired at or before {@code now}, in order of
+   * expiration date and serial, after the license with {@code afterDate} and {@code afterSerial}
+   * or from the start if {@code afterSerial} is {@code null}.
+   */
+  List<License> findExpiredAfter(
+      LocalDateTime now, LocalDateTime afterDate, String afterSerial, int limit);
+
+  /**
+   * Inserts new, non-upgrade licenses and their lineage, as {@link #insertLineage}, with one JDBC
+   * batch per table.
+   * Nothing is checked beforehand; a duplicate serial or key fails the batch with the driver's
+   * constraint violation.
+   *
+   * @return number of licenses inserted
+   */
+  int insertLicenses(List<License> licenses);
+
+  /**
+   * Moves the license and its descendants below the license with {@code upgradeFromKey}, or makes
+   * it an original license if that is {@code null}. A link that would close a cycle is not
+   * recorded.
+   */
+  void relinkLineage(String serial, String upgradeFromKey);
+
+  /** Relinks all licenses upgrading from one of {@code licenseKeys}, after a key changed. */
+  void relinkUpgradesFrom(Collection<String> licenseKeys);
+
+  /**
+   * Removes all lineage rows in which the license is an ancestor or a descendant. Its descendants
+   * keep the lineage below it, its direct upgrades becoming original licenses.
+   */
+  void deleteLineage(String serial);
+
+  /**
+   * Recomputes the whole lineage closure table from {@code licenses.upgrade_from_key} with one
+   * statement, following each chain for at most {@code maxDepth} ancestors and stopping where it
+   * returns to the license it started from.
+   *
+   * @return number of lineage rows written
+   */
+  int rebuildLineage(int maxDepth);
+
+  /** Returns the seat number {@code entityId} holds on the license, or {@code null}. */
+  Integer findSeat(String serial, String entityId);
+
+  /** Returns the numbers of all seats taken on the license. */
+  List<Integer> findTakenSeats(String serial);
+
+  /**
+   * Claims seat {@code seatNo} of the license for {@code entityId}. Returns false, leaving the
+   * surrounding transaction usable, if the seat is taken or the entity already holds another seat.
+   */
+  boolean insertSeat(String serial, int seatNo, String entityId, LocalDateTime date);
+
+  /** Returns those of {@code serials} on which {@code entityId} holds a seat. */
+  Set<String> findSeatedSerials(Collection<String> serials, String entityId);
+
+  /** Releases the seats {@code entityId} holds on {@code serials}; returns the number released. */
+  int deleteSeats(Collection<String> serials, String entityId);
+
+  /** Number of taken seats of the license. */
+  int countSeats(String serial);
+}
@@ -0,0 +1,464 @@
+package com.cyberstrak.license.repository;
+
+import com.cyberstrak.license.entity.License;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+/** JDBC implementation of {@link LicenseRepositoryCustom}. */
+class LicenseRepositoryCustomImpl implements LicenseRepositoryCustom {
+
+  private static final List<String> LICENSE_COLUMNS =
+      List.of(
+          "serial",
+          "license_key",
+          "product_id",
+          "entity_id",
+          "enabled",
+          "number_of_seats",
+          "expiration_date",
+          "is_upgrade",
+          "upgrade_from_key",
+          "date",
+          "email",
+          "comment");
+
+  private static final String PAGE_FROM_START =
+      "SELECT " + columns("l") + " FROM licenses l ORDER BY l.serial LIMIT ?";
+
+  private static final String PAGE_AFTER_CURSOR =
+      "SELECT " + columns("l") + " FROM licenses l WHERE l.serial > ? ORDER BY l.serial LIMIT ?";
+
+  /**
+   * Follows upgrade_from_key from the start key. The depth bound guarantees termination even if
+   * the data contains a cycle; the cycle itself is detected when mapping the rows.
+   */
+  private static final String UPGRADE_CHAIN =
+      """
+      WITH RECURSIVE chain (serial, upgrade_from_key, depth) AS (
+        SELECT serial, upgrade_from_key, 0 FROM licenses WHERE license_key = ?
+        UNION ALL
+        SELECT l.serial, l.upgrade_from_key, c.depth + 1
+        FROM chain c JOIN licenses l ON l.license_key = c.upgrade_from_key
+        WHERE c.depth < ?
+      )
+      SELECT %s FROM chain c JOIN licenses l ON l.serial = c.serial ORDER BY c.depth
+      """
+          .formatted(columns("l"));
+
+  private static final String LINEAGE_BY_KEY =
+      """
+      SELECT %s FROM licenses p
+      JOIN license_lineage ll ON ll.descendant_serial = p.serial
+      JOIN licenses l ON l.serial = ll.ancestor_serial
+      WHERE p.license_key = ? ORDER BY ll.depth
+      """
+          .formatted(columns("l"));
+
+  private static final String UPGRADE_FAMILY =
+      """
+      SELECT %s FROM license_lineage d
+      JOIN licenses l ON l.serial = d.descendant_serial
+      WHERE d.ancestor_serial = (
+        SELECT a.ancestor_serial FROM licenses p
+        JOIN license_lineage a ON a.descendant_serial = p.serial
+        WHERE p.license_key = ? ORDER BY a.depth DESC LIMIT 1)
+      ORDER BY d.depth, l.serial
+      """
+          .formatted(columns("l"));
+
+  /** Each half is served by the entity index of its table; a seat never sets licenses.entity_id. */
+  private static final String HELD_BY_ENTITY =
+      """
+      SELECT %1$s FROM licenses l WHERE l.entity_id = ?
+      UNION ALL
+      SELECT %1$s FROM license_seats s JOIN licenses l ON l.serial = s.serial WHERE s.entity_id = ?
+      ORDER BY serial
+      """
+          .formatted(columns("l"));
+
+  /** Ranges over the enabled licenses of the (enabled, expiration_date) index. */
+  private static final String EXPIRED_FROM_START =
+      "SELECT "
+          + columns("l")
+          + " FROM licenses l WHERE l.enabled = TRUE AND l.expiration_date <= ?"
+          + " ORDER BY l.expiration_date, l.serial LIMIT ?";
+
+  private static final String EXPIRED_AFTER_CURSOR =
+      "SELECT "
+          + columns("l")
+          + " FROM licenses l WHERE l.enabled = TRUE AND l.expiration_date <= ?"
+          + " AND l.expiration_date >= ? AND (l.expiration_date > ? OR l.serial > ?)"
+          + " ORDER BY l.expiration_date, l.serial LIMIT ?";
+
+  private static final String INSERT_LICENSE =
+      "INSERT INTO licenses ("
+          + String.join(", ", LICENSE_COLUMNS)
+          + ", version) VALUES ("
+          + placeholders(LICENSE_COLUMNS.size())
+          + ", 0)";
+
+  /**
+   * The own row of a new license and, below it, the lineage of the licenses that already upgrade
+   * from its key, e.g. when an upgrade was stored before the license it upgrades from.
+   */
+  private static final String INSERT_LINEAGE =
+      """
+      INSERT INTO license_lineage (ancestor_serial, descendant_serial, depth)
+      SELECT serial, serial, 0 FROM licenses WHERE serial = ?
+      UNION ALL
+      SELECT n.serial, d.descendant_serial, d.depth + 1 FROM licenses n
+      JOIN licenses c ON c.upgrade_from_key = n.license_key AND c.serial <> n.serial
+      JOIN license_lineage d ON d.ancestor_serial = c.serial
+      WHERE n.serial = ?
+      """;
+
+  /**
+   * Makes every ancestor of the license with the given key, itself included, an ancestor of the
+   * given license and its descendants. Nothing is linked if that license is one of the
+   * descendants, so no cycle is recorded.
+   */
+  private static final String ATTACH_LINEAGE =
+      """
+      INSERT INTO license_lineage (ancestor_serial, descendant_serial, depth)
+      SELECT a.ancestor_serial, d.descendant_serial, a.depth + d.depth + 1 FROM licenses p
+      JOIN license_lineage a ON a.descendant_serial = p.serial
+      JOIN license_lineage d ON d.ancestor_serial = ?
+      WHERE p.license_key = ? AND NOT EXISTS (
+        SELECT 1 FROM license_lineage x
+        WHERE x.ancestor_serial = ? AND x.descendant_serial = p.serial)
+      """;
+
+  /**
+   * Follows upgrade_from_key from every license for at most the given number of links, stopping
+   * where a chain returns to the license it started from.
+   */
+  private static final String REBUILD_LINEAGE =
+      """
+      INSERT INTO license_lineage (ancestor_serial, descendant_serial, depth)
+      WITH RECURSIVE up (ancestor_serial, descendant_serial, depth) AS (
+        SELECT serial, serial, 0 FROM licenses
+        UNION ALL
+        SELECT p.serial, u.descendant_serial, u.depth + 1
+        FROM up u JOIN licenses a ON a.serial = u.ancestor_serial
+        JOIN licenses p ON p.license_key = a.upgrade_from_key
+        WHERE p.serial <> u.descendant_serial AND u.depth < ?
+      )
+      SELECT ancestor_serial, descendant_serial, MIN(depth) FROM up
+      GROUP BY ancestor_serial, descendant_serial
+      """;
+
+  private static final String INSERT_SEAT =
+      "INSERT INTO license_seats (serial, seat_no, entity_id, date) VALUES (?, ?, ?, ?)";
+
+  static final RowMapper<License> LICENSE_ROW_MAPPER = LicenseRepositoryCustomImpl::mapLicense;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Value("${license.jdbc.fetch-size:500}")
+  private int fetchSize;
+
+  LicenseRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public List<License> findPageAfter(String cursor, int limit) {
+    return jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps =
+              con.prepareStatement(cursor == null ? PAGE_FROM_START : PAGE_AFTER_CURSOR);
+          ps.setFetchSize(Math.min(fetchSize, limit));
+          int i = 1;
+          if (cursor != null) ps.setString(i++, cursor);
+          ps.setInt(i, limit);
+          return ps;
+        },
+        LICENSE_ROW_MAPPER);
+  }
+
+  @Override
+  public UpgradeChain findUpgradeChain(String licenseKey, int maxDepth) {
+    // one row more than allowed tells a chain that is exactly maxDepth long from a longer one
+    List<License> rows = jdbcTemplate.query(UPGRADE_CHAIN, LICENSE_ROW_MAPPER, licenseKey, maxDepth);
+
+    List<License> chain = new ArrayList<>(rows.size());
+    Set<String> seen = new HashSet<>();
+    for (License l : rows) {
+      if (!seen.add(l.getSerial())) return new UpgradeChain(chain, true, false);
+      if (chain.size() == maxDepth) return new UpgradeChain(chain, false, true);
+      chain.add(l);
+    }
+    return new UpgradeChain(chain, false, false);
+  }
+
+  @Override
+  public List<License> findLineageByKey(String licenseKey) {
+    return jdbcTemplate.query(LINEAGE_BY_KEY, LICENSE_ROW_MAPPER, licenseKey);
+  }
+
+  @Override
+  public List<License> findUpgradeFamily(String licenseKey) {
+    return jdbcTemplate.query(UPGRADE_FAMILY, LICENSE_ROW_MAPPER, licenseKey);
+  }
+
+  @Override
+  public List<License> findByEntityId(String entityId) {
+    return jdbcTemplate.query(HELD_BY_ENTITY, LICENSE_ROW_MAPPER, entityId, entityId);
+  }
+
+  @Override
+  public List<License> findExpiredAfter(
+      LocalDateTime now, LocalDateTime afterDate, String afterSerial, int limit) {
+    if (afterSerial == null) {
+      return jdbcTemplate.query(
+          EXPIRED_FROM_START, LICENSE_ROW_MAPPER, Timestamp.valueOf(now), limit);
+    }
+    Timestamp after = Timestamp.valueOf(afterDate);
+    return jdbcTemplate.query(
+        EXPIRED_AFTER_CURSOR,
+        LICENSE_ROW_MAPPER,
+        Timestamp.valueOf(now),
+        after,
+        after,
+        afterSerial,
+        limit);
+  }
+
+  @Override
+  public void insertLineage(String serial, String upgradeFromKey) {
+    jdbcTemplate.update(INSERT_LINEAGE, serial, serial);
+    if (upgradeFromKey != null) attachLineage(serial, upgradeFromKey);
+  }
+
+  @Override
+  public int insertLicenses(List<License> licenses) {
+    if (licenses.isEmpty()) return 0;
+    List<Object[]> rows = new ArrayList<>(licenses.size());
+    List<Object[]> lineage = new ArrayList<>(licenses.size());
+    for (License l : licenses) {
+      rows.add(
+          new Object[] {
+            l.getSerial(),
+            l.getLicenseKey(),
+            l.getProductId(),
+            l.getEntityId(),
+            l.isEnabled(),
+            l.getNumberOfSeats(),
+            timestamp(l.getExpirationDate()),
+            false,
+            null,
+            timestamp(l.getDate()),
+            l.getEmail(),
+            l.getComment()
+          });
+      lineage.add(new Object[] {l.getSerial(), l.getSerial()});
+    }
+    jdbcTemplate.batchUpdate(INSERT_LICENSE, rows);
+    jdbcTemplate.batchUpdate(INSERT_LINEAGE, lineage);
+    return rows.size();
+  }
+
+  @Override
+  public void relinkLineage(String serial, String upgradeFromKey) {
+    detachLineage(findDescendants(serial));
+    if (upgradeFromKey != null) attachLineage(serial, upgradeFromKey);
+  }
+
+  @Override
+  public void relinkUpgradesFrom(Collection<String> licenseKeys) {
+    if (licenseKeys.isEmpty()) return;
+    List<String[]> upgrades =
+        jdbcTemplate.query(
+            "SELECT serial, upgrade_from_key FROM licenses WHERE upgrade_from_key IN ("
+                + placeholders(licenseKeys.size())
+                + ")",
+            (rs, rowNum) -> new String[] {rs.getString("serial"), rs.getString("upgrade_from_key")},
+            licenseKeys.toArray());
+    for (String[] upgrade : upgrades) relinkLineage(upgrade[0], upgrade[1]);
+  }
+
+  @Override
+  public void deleteLineage(String serial) {
+    List<String> descendants = findDescendants(serial);
+    if (descendants.size() <= 1) {
+      // a license without descendants only appears as one
+      jdbcTemplate.update("DELETE FROM license_lineage WHERE descendant_serial = ?", serial);
+      return;
+    }
+    // its descendants keep their lineage below the license, which is removed last
+    detachLineage(descendants);
+    jdbcTemplate.update("DELETE FROM license_lineage WHERE ancestor_serial = ?", serial);
+  }
+
+  @Override
+  public int rebuildLineage(int maxDepth) {
+    jdbcTemplate.update("DELETE FROM license_lineage");
+    return jdbcTemplate.update(REBUILD_LINEAGE, maxDepth);
+  }
+
+  private void attachLineage(String serial, String upgradeFromKey) {
+    jdbcTemplate.update(ATTACH_LINEAGE, serial, upgradeFromKey, serial);
+  }
+
+  /** Returns the license itself and all licenses upgraded from it, directly or not. */
+  private List<String> findDescendants(String serial) {
+    return jdbcTemplate.queryForList(
+        "SELECT descendant_serial FROM license_lineage WHERE ancestor_serial = ?",
+        String.class,
+        serial);
+  }
+
+  /** Removes the rows that link a subtree to the ancestors of its root. */
+  private void detachLineage(List<String> subtree) {
+    if (subtree.isEmpty()) return;
+    String in = placeholders(subtree.size());
+    List<Object> args = new ArrayList<>(subtree);
+    args.addAll(subtree);
+    jdbcTemplate.update(
+        "DELETE FROM license_lineage WHERE descendant_serial IN ("
+            + in
+            + ") AND ancestor_serial NOT IN ("
+            + in
+            + ")",
+        args.toArray());
+  }
+
+  @Override
+  public Integer findSeat(String serial, String entityId) {
+    List<Integer> seats =
+        jdbcTemplate.queryForList(
+            "SELECT seat_no FROM license_seats WHERE serial = ? AND entity_id = ?",
+            Integer.class,
+            serial,
+            entityId);
+    return seats.isEmpty() ? null : seats.get(0);
+  }
+
+  @Override
+  public List<Integer> findTakenSeats(String serial) {
+    return jdbcTemplate.queryForList(
+        "SELECT seat_no FROM license_seats WHERE serial = ? ORDER BY seat_no", Integer.class, serial);
+  }
+
+  @Override
+  public boolean insertSeat(String serial, int seatNo, String entityId, LocalDateTime date) {
+    Boolean inserted =
+        jdbcTemplate.execute(
+            (ConnectionCallback<Boolean>)
+                con -> {
+                  // a failed statement aborts the whole transaction on PostgreSQL, so a lost race
+                  // is rolled back to a savepoint instead
+                  Savepoint savepoint = con.getAutoCommit() ? null : con.setSavepoint();
+                  try (PreparedStatement ps = con.prepareStatement(INSERT_SEAT)) {
+                    ps.setString(1, serial);
+                    ps.setInt(2, seatNo);
+                    ps.setString(3, entityId);
+                    ps.setTimestamp(4, Timestamp.valueOf(date));
+                    ps.executeUpdate();
+                  } catch (SQLException e) {
+                    if (savepoint != null) con.rollback(savepoint);
+                    if (isDuplicateKey(e)) return false;
+                    throw e;
+                  }
+                  if (savepoint != null) con.releaseSavepoint(savepoint);
+                  return true;
+                });
+    return Boolean.TRUE.equals(inserted);
+  }
+
+  /**
+   * Whether {@code e} reports a taken primary key or unique index entry, as opposed to any other
+   * integrity violation. The error codes Spring knows cover H2, PostgreSQL and MariaDB; SQLite
+   * reports no SQLState, only its extended result code.
+   */
+  private boolean isDuplicateKey(SQLException e) {
+    if (e instanceof SQLiteException sqlite) {
+      return sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY
+          || sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE;
+    }
+    return jdbcTemplate.getExceptionTranslator().translate("insertSeat", INSERT_SEAT, e)
+        instanceof DuplicateKeyException;
+  }
+
+  @Override
+  public Set<String> findSeatedSerials(Collection<String> serials, String entityId) {
+    if (serials.isEmpty()) return Set.of();
+    List<Object> args = new ArrayList<>(serials);
+    args.add(entityId);
+    return new HashSet<>(
+        jdbcTemplate.queryForList(
+            "SELECT serial FROM license_seats WHERE serial IN ("
+                + placeholders(serials.size())
+                + ") AND entity_id = ?",
+            String.class,
+            args.toArray()));
+  }
+
+  @Override
+  public int deleteSeats(Collection<String> serials, String entityId) {
+    if (serials.isEmpty()) return 0;
+    List<Object> args = new ArrayList<>(serials);
+    args.add(entityId);
+    return jdbcTemplate.update(
+        "DELETE FROM license_seats WHERE serial IN ("
+            + placeholders(serials.size())
+            + ") AND entity_id = ?",
+        args.toArray());
+  }
+
+  @Override
+  public int countSeats(String serial) {
+    Integer count =
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM license_seats WHERE serial = ?", Integer.class, serial);
+    return count != null ? count : 0;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  private static Timestamp timestamp(LocalDateTime date) {
+    return date != null ? Timestamp.valueOf(date) : null;
+  }
+
+  private static String columns(String alias) {
+    return String.join(", ", LICENSE_COLUMNS.stream().map(c -> alias + "." + c).toList());
+  }
+
+  private static License mapLicense(ResultSet rs, int rowNum) throws SQLException {
+    License l = new License();
+    l.setSerial(rs.getString("serial"));
+    l.setLicenseKey(rs.getString("license_key"));
+    l.setProductId(rs.getString("product_id"));
+    l.setEntityId(rs.getString("entity_id"));
+    l.setEnabled(rs.getBoolean("enabled"));
+    l.setNumberOfSeats(rs.getInt("number_of_seats"));
+    Timestamp expiration = rs.getTimestamp("expiration_date");
+    l.setExpirationDate(expiration != null ? expiration.toLocalDateTime() : null);
+    l.setUpgrade(rs.getBoolean("is_upgrade"));
+    l.setUpgradeFromKey(rs.getString("upgrade_from_key"));
+    Timestamp date = rs.getTimestamp("date");
+    l.setDate(date != null ? date.toLocalDateTime() : null);
+    l.setEmail(rs.getString("email"));
+    l.setComment(rs.getString("comment"));
+    return l;
+  }
+}
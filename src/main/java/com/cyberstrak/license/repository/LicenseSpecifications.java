@@ -0,0 +1,37 @@
+package com.cyberstrak.license.repository;
+
+import com.cyberstrak.license.entity.License;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.domain.Specification;
+
+/** Composable JPA criteria for filtering licenses; each one is backed by an index. */
+public final class LicenseSpecifications {
+
+  private LicenseSpecifications() {}
+
+  public static Specification<License> keyStartsWith(String prefix) {
+    String pattern =
+        prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    return (root, query, cb) -> cb.like(root.get("licenseKey"), pattern, '\\');
+  }
+
+  public static Specification<License> productId(String productId) {
+    return (root, query, cb) -> cb.equal(root.get("productId"), productId);
+  }
+
+  public static Specification<License> entityId(String entityId) {
+    return (root, query, cb) -> cb.equal(root.get("entityId"), entityId);
+  }
+
+  public static Specification<License> enabled(boolean enabled) {
+    return (root, query, cb) -> cb.equal(root.get("enabled"), enabled);
+  }
+
+  public static Specification<License> expiresOnOrAfter(LocalDateTime from) {
+    return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("expirationDate"), from);
+  }
+
+  public static Specification<License> expiresOnOrBefore(LocalDateTime to) {
+    return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("expirationDate"), to);
+  }
+}
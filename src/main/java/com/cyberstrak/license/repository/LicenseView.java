@@ -0,0 +1,19 @@
+package com.cyberstrak.license.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a license: the columns a {@code LicenseDto} is built from, selected straight from
+ * the table. Unlike a {@code License} entity it is never managed, so reading it costs no
+ * persistence context entry and no dirty-checking snapshot.
+ */
+public record LicenseView(
+    String serial,
+    String licenseKey,
+    String productId,
+    String entityId,
+    boolean enabled,
+    LocalDateTime expirationDate,
+    int numberOfSeats,
+    String email,
+    String comment) {}
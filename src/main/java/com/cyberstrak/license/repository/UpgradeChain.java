@@ -0,0 +1,12 @@
+package com.cyberstrak.license.repository;
+
+import com.cyberstrak.license.entity.License;
+import java.util.List;
+
+/**
+ * Licenses of an upgrade chain, ordered from the start license towards the original license.
+ *
+ * @param cyclic the chain leads back to one of its own licenses and was cut at the repetition
+ * @param truncated the chain is longer than the requested depth and was cut there
+ */
+public record UpgradeChain(List<License> licenses, boolean cyclic, boolean truncated) {}
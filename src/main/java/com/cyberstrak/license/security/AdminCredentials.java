@@ -0,0 +1,40 @@
+package com.cyberstrak.license.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * The administrator's credentials, configured apart from the issuer's through {@code admin.id} and
+ * {@code admin.secret} and held only as a SHA-256 digest. Without a secret no one is an
+ * administrator.
+ */
+@Component
+public class AdminCredentials {
+
+  /** Authorities of the administrator, who may control the flight recorder. */
+  public static final List<GrantedAuthority> AUTHORITIES =
+      List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+  private final byte[] digest;
+
+  public AdminCredentials(
+      @Value("${admin.id:admin}") String adminId, @Value("${admin.secret:}") String adminSecret) {
+    this.digest =
+        adminSecret.isEmpty()
+            ? null
+            : IssuerCredentials.sha256(
+                (adminId + ":" + adminSecret).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public boolean matches(String username, String password) {
+    if (digest == null || username == null || password == null) return false;
+    byte[] candidate =
+        IssuerCredentials.sha256((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    return MessageDigest.isEqual(candidate, digest);
+  }
+}
@@ -0,0 +1,59 @@
+package com.cyberstrak.license.security;
+
+import com.cyberstrak.license.web.ServerTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Basic authentication for the Cloud Zoo callback endpoints. Checks the header against {@link
+ * IssuerCredentials} without going through an {@code AuthenticationManager}, and keeps the result
+ * in the request's security context only. Bearer tokens are left to {@link JwtAuthFilter}.
+ *
+ * <p>Not a bean on purpose: as a {@code @Component} Spring Boot would also register it as a
+ * servlet filter for every request.
+ */
+public class CallbackAuthFilter extends OncePerRequestFilter {
+  private static final String BASIC = "Basic ";
+
+  private final IssuerCredentials credentials;
+  private final AuthenticationEntryPoint entryPoint;
+  private final SecurityContextHolderStrategy contextHolder =
+      SecurityContextHolder.getContextHolderStrategy();
+
+  public CallbackAuthFilter(IssuerCredentials credentials, AuthenticationEntryPoint entryPoint) {
+    this.credentials = credentials;
+    this.entryPoint = entryPoint;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+      ServerTiming timing = ServerTiming.current();
+      long started = System.nanoTime();
+      boolean matches = credentials.matchesBasic(header.substring(BASIC.length()).trim());
+      if (timing != null) timing.add(ServerTiming.AUTH, System.nanoTime() - started);
+      if (!matches) {
+        contextHolder.clearContext();
+        entryPoint.commence(request, response, new BadCredentialsException("Bad credentials"));
+        return;
+      }
+      SecurityContext context = contextHolder.createEmptyContext();
+      context.setAuthentication(credentials.authentication());
+      contextHolder.setContext(context);
+    }
+    filterChain.doFilter(request, response);
+  }
+}
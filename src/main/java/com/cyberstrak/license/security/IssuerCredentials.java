@@ -0,0 +1,62 @@
+package com.cyberstrak.license.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * The issuer's Basic credentials, held only as a SHA-256 digest of {@code id:secret}. Candidates
+ * are hashed and compared with {@link MessageDigest#isEqual}, so the comparison takes the same time
+ * wherever a wrong credential differs.
+ */
+@Component
+public class IssuerCredentials {
+
+  private final byte[] digest;
+  private final Authentication authentication;
+
+  public IssuerCredentials(
+      @Value("${issuer.id}") String issuerId, @Value("${issuer.secret}") String issuerSecret) {
+    this.digest = sha256((issuerId + ":" + issuerSecret).getBytes(StandardCharsets.UTF_8));
+    // immutable after construction, so one instance serves every authenticated callback
+    this.authentication =
+        UsernamePasswordAuthenticationToken.authenticated(issuerId, null, List.of());
+  }
+
+  public boolean matches(String username, String password) {
+    if (username == null || password == null) return false;
+    return matches((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Checks the base64 {@code user:password} part of a {@code Basic} Authorization header. */
+  public boolean matchesBasic(String encoded) {
+    try {
+      return matches(Base64.getDecoder().decode(encoded));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /** The authentication of the issuer, shared by all requests that present its credentials. */
+  public Authentication authentication() {
+    return authentication;
+  }
+
+  private boolean matches(byte[] credentials) {
+    return MessageDigest.isEqual(sha256(credentials), digest);
+  }
+
+  static byte[] sha256(byte[] input) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(input);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
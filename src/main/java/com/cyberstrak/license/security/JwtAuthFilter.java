@@ -1,5 +1,6 @@
 package com.cyberstrak.license.security;
 
+import com.cyberstrak.license.web.ServerTiming;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -34,11 +35,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     if (authHeader != null && authHeader.startsWith("Bearer ")) {
       String token = authHeader.substring(7);
+      ServerTiming timing = ServerTiming.current();
+      long started = System.nanoTime();
       try {
-        String username = jwtService.extractUsername(token);
+        // one verification yields subject and roles
+        VerifiedToken verified = jwtService.verify(token);
+        String username = verified.username();
 
         List<GrantedAuthority> authorities =
-            jwtService.extractRoles(token).stream()
+            verified.roles().stream()
                 .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toList());
 
@@ -56,6 +61,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         // Ungültiges oder abgelaufenes Token → 401
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         return;
+      } finally {
+        if (timing != null) timing.add(ServerTiming.AUTH, System.nanoTime() - started);
       }
     }
 
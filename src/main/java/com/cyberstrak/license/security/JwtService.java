@@ -1,11 +1,23 @@
 package com.cyberstrak.license.security;
 
+import com.cyberstrak.license.jfr.JwtVerificationEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -17,15 +29,38 @@ import org.springframework.stereotype.Service;
 @Service
 public class JwtService {
 
-  // mind. 256 Bit für HS256; besser aus application.yml lesen
-  @Value("${security.jwt.secret:change-me-change-me-change-me-change-me-32bytes}")
-  private String secret;
+  private final SecretKey key;
+  private final JwtParser parser;
+  private final long ttlSeconds;
 
-  @Value("${security.jwt.ttl-seconds:3600}")
-  private long ttlSeconds;
+  // verified tokens by SHA-256 digest; each entry expires together with its token
+  private final Cache<String, VerifiedToken> verified;
+  private final Timer verificationTimer;
 
-  private SecretKey key() {
-    return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+  public JwtService(
+      // mind. 256 Bit für HS256; besser aus application.yml lesen
+      @Value("${security.jwt.secret:change-me-change-me-change-me-change-me-32bytes}")
+          String secret,
+      @Value("${security.jwt.ttl-seconds:3600}") long ttlSeconds,
+      @Value("${security.jwt.cache.maximum-size:10000}") long cacheMaximumSize,
+      MeterRegistry meterRegistry) {
+    this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    this.parser = Jwts.parser().verifyWith(key).build();
+    this.ttlSeconds = ttlSeconds;
+    this.verified =
+        Caffeine.newBuilder()
+            .maximumSize(cacheMaximumSize)
+            .expireAfter(
+                Expiry.creating(
+                    (String digest, VerifiedToken token) ->
+                        Duration.between(Instant.now(), token.expiresAt())))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.tokens");
+    this.verificationTimer =
+        Timer.builder("security.jwt.verification")
+            .description("Signature and claims verification of JWTs not found in the cache")
+            .register(meterRegistry);
   }
 
   public String generateToken(String username, Collection<? extends GrantedAuthority> authorities) {
@@ -35,23 +70,81 @@ public class JwtService {
         .claim("roles", authorities.stream().map(GrantedAuthority::getAuthority).toList())
         .issuedAt(Date.from(now))
         .expiration(Date.from(now.plusSeconds(ttlSeconds)))
-        .signWith(key())
+        .signWith(key)
         .compact();
   }
 
   public Jws<Claims> parse(String token) {
-    return Jwts.parser().verifyWith(key()).build().parseSignedClaims(token);
+    return parser.parseSignedClaims(token);
+  }
+
+  /**
+   * Verifies {@code token} once and returns its subject and roles. Tokens verified before are
+   * answered from the cache until they expire; invalid tokens are never cached and fail with the
+   * parser's {@link io.jsonwebtoken.JwtException}.
+   */
+  public VerifiedToken verify(String token) {
+    JwtVerificationEvent event = new JwtVerificationEvent();
+    event.begin();
+    String digest = digest(token);
+    VerifiedToken cached = verified.getIfPresent(digest);
+    if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+      commit(event, true, "valid");
+      return cached;
+    }
+
+    Claims claims;
+    try {
+      claims = verificationTimer.record(() -> parse(token)).getPayload();
+    } catch (RuntimeException e) {
+      commit(event, false, "invalid");
+      throw e;
+    }
+    Date expiration = claims.getExpiration();
+    VerifiedToken result =
+        new VerifiedToken(
+            claims.getSubject(),
+            roles(claims),
+            expiration != null
+                ? expiration.toInstant()
+                : Instant.now().plusSeconds(ttlSeconds));
+    verified.put(digest, result);
+    commit(event, false, "valid");
+    return result;
+  }
+
+  private static void commit(JwtVerificationEvent event, boolean cached, String outcome) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.cached = cached;
+      event.outcome = outcome;
+      event.commit();
+    }
   }
 
   public String extractUsername(String token) {
-    return parse(token).getPayload().getSubject();
+    return verify(token).username();
   }
 
   public List<String> extractRoles(String token) {
-    Object roles = parse(token).getPayload().get("roles");
+    return verify(token).roles();
+  }
+
+  private static List<String> roles(Claims claims) {
+    Object roles = claims.get("roles");
     if (roles instanceof Collection<?> c) {
       return c.stream().map(Object::toString).toList();
     }
     return List.of();
   }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
 }
@@ -1,30 +1,72 @@
 package com.cyberstrak.license.security;
 
+import com.cyberstrak.license.jfr.JfrEndpoint;
 import java.util.List;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.security.autoconfigure.actuate.web.servlet.EndpointRequest;
 import org.springframework.boot.security.autoconfigure.web.servlet.PathRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.context.NullSecurityContextRepository;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 /**
  * Configures Spring Security to use HTTP Basic authentication and allow public access to Swagger
- * and root endpoints.
+ * and root endpoints. The Cloud Zoo callback endpoints get their own stateless chain.
  */
 @Configuration
 @ConditionalOnWebApplication
 public class SecurityConfig {
 
+  /** Endpoints called by Cloud Zoo on every license activation and lookup. */
+  static final String[] CALLBACK_PATHS = {
+    "/add_license", "/remove_license", "/get_license", "/batch_licenses"
+  };
+
+  /**
+   * Stateless chain for the callback endpoints: Basic credentials are compared against the
+   * issuer's digest by {@link CallbackAuthFilter}, no session, request cache or anonymous
+   * authentication is created, and CORS is not needed for server-to-server calls.
+   */
+  @Bean
+  @Order(1)
+  public SecurityFilterChain callbackFilterChain(
+      HttpSecurity http, IssuerCredentials credentials, JwtAuthFilter jwtFilter)
+      throws Exception {
+    BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+    entryPoint.setRealmName("Realm");
+
+    http.securityMatcher(CALLBACK_PATHS)
+        .csrf(csrf -> csrf.disable())
+        .sessionManagement(
+            session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .securityContext(
+            context -> context.securityContextRepository(new NullSecurityContextRepository()))
+        .requestCache(cache -> cache.disable())
+        .anonymous(anonymous -> anonymous.disable())
+        .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+        .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(entryPoint))
+        .addFilterBefore(
+            new CallbackAuthFilter(credentials, entryPoint), AuthorizationFilter.class)
+        .addFilterBefore(jwtFilter, CallbackAuthFilter.class);
+    return http.build();
+  }
+
   @Bean
+  @Order(2)
   public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthFilter jwtFilter)
       throws Exception {
     http.csrf(csrf -> csrf.disable())
@@ -54,7 +96,10 @@ public class SecurityConfig {
                     .requestMatchers(
                         "/swagger-ui.html", "/v3/api-docs/**", "/swagger-ui/**", "/api/auth/login")
                     .permitAll()
-                    // 5) Rest der Endpunkte (deine echten APIs) braucht Auth (Basic oder JWT)
+                    // 5) Flight Recorder nur für Admins
+                    .requestMatchers(EndpointRequest.to(JfrEndpoint.class))
+                    .hasRole("ADMIN")
+                    // 6) Rest der Endpunkte (deine echten APIs) braucht Auth (Basic oder JWT)
                     .anyRequest()
                     .authenticated())
         .httpBasic(Customizer.withDefaults())
@@ -0,0 +1,7 @@
+package com.cyberstrak.license.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Subject, roles and expiry of a JWT whose signature and expiry have been checked. */
+public record VerifiedToken(String username, List<String> roles, Instant expiresAt) {}
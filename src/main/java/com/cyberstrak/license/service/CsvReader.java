@@ -0,0 +1,74 @@
+package com.cyberstrak.license.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records one at a time: fields separated by commas, optionally enclosed in double
+ * quotes, in which {@code ""} stands for a quote and line breaks are kept. Records end at LF or
+ * CRLF.
+ */
+class CsvReader {
+  private final Reader in;
+  private int peeked = -2;
+
+  CsvReader(Reader in) {
+    this.in = in;
+  }
+
+  /** Returns the fields of the next record, or {@code null} at the end of the input. */
+  List<String> next() throws IOException {
+    int c = read();
+    if (c == -1) return null;
+
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) throw new IOException("Unterminated quoted field");
+        if (c == '"') {
+          if (peek() == '"') {
+            field.append('"');
+            read();
+          } else {
+            quoted = false;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n' || c == -1) {
+        break;
+      } else if (c == '\r' && peek() == '\n') {
+        read();
+        break;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private int read() throws IOException {
+    if (peeked != -2) {
+      int c = peeked;
+      peeked = -2;
+      return c;
+    }
+    return in.read();
+  }
+
+  private int peek() throws IOException {
+    if (peeked == -2) peeked = in.read();
+    return peeked;
+  }
+}
@@ -0,0 +1,72 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.dto.LicenseDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, TTL-limited read-through cache for {@code get_license} lookups, keyed by license key and
+ * product id. An entry holds the license together with its compact JSON, so callbacks are answered
+ * without mapping or serializing again. Every write path in {@link LicenseService} evicts the
+ * entries it touches; the TTL bounds staleness for writes made by other replicas or directly in the
+ * database.
+ */
+@Component
+public class LicenseCache {
+
+  private record Key(String licenseKey, String productId) {}
+
+  /** A license as of one version of its row and the bytes {@code get_license} answers with. */
+  public record Entry(LicenseDto license, byte[] json) {}
+
+  private final boolean enabled;
+  private final Cache<Key, Entry> cache;
+
+  public LicenseCache(
+      @Value("${license.cache.enabled:true}") boolean enabled,
+      @Value("${license.cache.maximum-size:10000}") long maximumSize,
+      @Value("${license.cache.ttl:60s}") Duration ttl,
+      MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.cache =
+        Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "licenses");
+  }
+
+  /** Returns the cached license or loads it; loader failures are propagated and not cached. */
+  public Entry get(String licenseKey, String productId, Supplier<Entry> loader) {
+    if (!enabled) return loader.get();
+    return cache.get(new Key(licenseKey, productId), k -> loader.get());
+  }
+
+  /**
+   * Evicts the entry now and, inside a transaction, once more after commit so that a concurrent
+   * read cannot re-populate the cache with the pre-commit state.
+   */
+  public void evict(String licenseKey, String productId) {
+    if (!enabled || licenseKey == null || productId == null) return;
+    Key key = new Key(licenseKey, productId);
+    cache.invalidate(key);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              cache.invalidate(key);
+            }
+          });
+    }
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+}
@@ -0,0 +1,114 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Disables licenses once they expire. Each sweep walks the enabled, expired licenses through the
+ * (enabled, expiration_date) index from the start, in keyset batches, each disabled with one UPDATE
+ * in its own short transaction. Disabled licenses drop out of the index range, so a sweep reads
+ * little more than the licenses that expired, or were created, imported or re-enabled with a past
+ * expiration date, since the previous one.
+ *
+ * <p>Callbacks reject expired licenses on their own; the sweep keeps the stored state, and with it
+ * searches and dumps, in line.
+ */
+@Component
+public class LicenseExpirySweeper {
+  private static final Logger logger = LoggerFactory.getLogger(LicenseExpirySweeper.class);
+
+  private final LicenseRepository licenseRepo;
+  private final LicenseCache licenseCache;
+  private final LicenseMetrics metrics;
+  private final TransactionTemplate transactionTemplate;
+  private final Counter disabledCounter;
+  private final Counter batchCounter;
+
+  @Value("${license.expiry.sweep.enabled:true}")
+  private boolean enabled;
+
+  @Value("${license.expiry.sweep.batch-size:100}")
+  private int batchSize;
+
+  private volatile LocalDateTime checkpointDate;
+
+  public LicenseExpirySweeper(
+      LicenseRepository licenseRepo,
+      LicenseCache licenseCache,
+      LicenseMetrics metrics,
+      TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry) {
+    this.licenseRepo = licenseRepo;
+    this.licenseCache = licenseCache;
+    this.metrics = metrics;
+    this.transactionTemplate = transactionTemplate;
+    this.disabledCounter =
+        Counter.builder("license.expiry.disabled")
+            .description("Expired licenses disabled by the expiry sweep")
+            .register(meterRegistry);
+    this.batchCounter =
+        Counter.builder("license.expiry.batches")
+            .description("Batches written by the expiry sweep")
+            .register(meterRegistry);
+    Gauge.builder("license.expiry.checkpoint", this, s -> s.checkpointEpochSecond())
+        .description("Expiration date of the last license swept, in epoch seconds")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(
+      initialDelayString = "${license.expiry.sweep.interval:1m}",
+      fixedDelayString = "${license.expiry.sweep.interval:1m}")
+  public void scheduledSweep() {
+    if (enabled) sweep();
+  }
+
+  /** Disables all enabled licenses that have expired; returns the number disabled. */
+  public synchronized int sweep() {
+    return metrics.record("expire", this::sweepBatches);
+  }
+
+  private int sweepBatches() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime afterDate = null;
+    String afterSerial = null;
+    int total = 0;
+    while (true) {
+      List<License> batch = licenseRepo.findExpiredAfter(now, afterDate, afterSerial, batchSize);
+      if (batch.isEmpty()) break;
+
+      List<String> serials = batch.stream().map(License::getSerial).toList();
+      Integer updated =
+          transactionTemplate.execute(status -> licenseRepo.disableExpired(serials, now));
+      int disabled = updated != null ? updated : 0;
+      batch.forEach(l -> licenseCache.evict(l.getLicenseKey(), l.getProductId()));
+      // licenses changed since they were read are skipped, not read again
+      License last = batch.get(batch.size() - 1);
+      afterDate = last.getExpirationDate();
+      afterSerial = last.getSerial();
+      checkpointDate = afterDate;
+
+      total += disabled;
+      disabledCounter.increment(disabled);
+      batchCounter.increment();
+      if (batch.size() < batchSize) break;
+    }
+    if (total > 0) logger.info("Disabled {} expired licenses", total);
+    return total;
+  }
+
+  private double checkpointEpochSecond() {
+    LocalDateTime date = checkpointDate;
+    return date != null ? date.atZone(LicenseService.ZONE).toEpochSecond() : 0;
+  }
+}
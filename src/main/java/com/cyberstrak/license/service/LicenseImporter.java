@@ -0,0 +1,341 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.dto.CreateLicenseRequest;
+import com.cyberstrak.license.dto.ImportReport;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.exception.BadRequestException;
+import com.cyberstrak.license.repository.LicenseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+/**
+ * Imports licenses from a CSV or NDJSON stream. Rows are read one at a time, validated against the
+ * constraints of {@link CreateLicenseRequest} and checked for serials and keys already seen in the
+ * import, all before the database is touched. Valid rows are written in batches of {@code
+ * license.import.batch-size}, each in its own transaction: one query finds the serials and keys of
+ * the batch that already exist, the rest is inserted with one JDBC batch. Serials and keys are
+ * compared ignoring case, as the case-insensitive collations of MariaDB and MySQL do. A batch the
+ * database still rejects is rolled back and retried one row per transaction, so only the failing
+ * rows are reported; batches before it stay committed.
+ *
+ * <p>CSV input starts with a header naming the columns {@code serial}, {@code key}, {@code aud}
+ * and optionally {@code expiration} (epoch seconds), {@code numberOfSeats} (blank for 1), {@code
+ * email} and {@code comment}. NDJSON input has one {@code create_license} body per line.
+ */
+@Service
+public class LicenseImporter {
+  private static final Logger logger = LoggerFactory.getLogger(LicenseImporter.class);
+
+  private static final Set<String> REQUIRED_COLUMNS = Set.of("serial", "key", "aud");
+  private static final Set<String> COLUMNS =
+      Set.of("serial", "key", "aud", "expiration", "numberofseats", "email", "comment");
+
+  /** Input formats of an import. */
+  public enum Format {
+    CSV,
+    NDJSON
+  }
+
+  private final LicenseRepository licenseRepo;
+  private final TransactionTemplate transactionTemplate;
+  private final Validator validator;
+  private final ObjectReader requestReader;
+  private final LicenseMetrics metrics;
+  private final Counter importedCounter;
+  private final Counter failedCounter;
+
+  @Value("${license.import.batch-size:1000}")
+  private int batchSize;
+
+  @Value("${license.import.max-errors:1000}")
+  private int maxErrors;
+
+  public LicenseImporter(
+      LicenseRepository licenseRepo,
+      TransactionTemplate transactionTemplate,
+      Validator validator,
+      ObjectMapper objectMapper,
+      LicenseMetrics metrics,
+      MeterRegistry meterRegistry) {
+    this.licenseRepo = licenseRepo;
+    this.transactionTemplate = transactionTemplate;
+    this.validator = validator;
+    this.requestReader = objectMapper.readerFor(CreateLicenseRequest.class);
+    this.metrics = metrics;
+    this.importedCounter = rowCounter(meterRegistry, "imported");
+    this.failedCounter = rowCounter(meterRegistry, "failed");
+  }
+
+  private static Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("license.import.rows")
+        .description("Rows read by bulk imports")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Imports all rows of {@code in}, read as UTF-8, and returns the report. {@code progress} is
+   * called after each batch with the counts so far and without the row errors.
+   *
+   * @throws BadRequestException if the CSV header is invalid or the input cannot be read; batches
+   *     committed before remain imported
+   */
+  public ImportReport importLicenses(
+      InputStream in, Format format, Consumer<ImportReport> progress) {
+    return metrics.record(
+        "import",
+        () -> {
+          BufferedReader reader =
+              new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+          Run run = new Run(progress);
+          try {
+            if (format == Format.CSV) readCsv(reader, run);
+            else readNdjson(reader, run);
+          } catch (IOException e) {
+            throw new BadRequestException(
+                "Cannot read the import after row " + run.rows + ": " + e.getMessage());
+          }
+          run.flush();
+          logger.info(
+              "Imported {} of {} licenses, {} rows failed", run.imported, run.rows, run.failed);
+          return run.report();
+        });
+  }
+
+  private void readNdjson(BufferedReader reader, Run run) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) continue;
+      long row = ++run.rows;
+      try {
+        run.accept(row, requestReader.readValue(line));
+      } catch (JacksonException e) {
+        run.reject(row, null, "Malformed JSON: " + e.getOriginalMessage());
+      }
+    }
+  }
+
+  private void readCsv(BufferedReader reader, Run run) throws IOException {
+    CsvReader csv = new CsvReader(reader);
+    List<String> header = csv.next();
+    if (header == null) return;
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      String name = header.get(i).strip().toLowerCase(Locale.ROOT);
+      if (!COLUMNS.contains(name)) {
+        throw new BadRequestException("Unknown CSV column '" + header.get(i).strip() + "'.");
+      }
+      columns.put(name, i);
+    }
+    if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+      throw new BadRequestException("The CSV header must name the columns serial, key and aud.");
+    }
+
+    List<String> fields;
+    while ((fields = csv.next()) != null) {
+      if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+      long row = ++run.rows;
+      String serial = field(fields, columns, "serial");
+      if (fields.size() != header.size()) {
+        run.reject(
+            row, serial, "Expected " + header.size() + " fields, found " + fields.size() + ".");
+        continue;
+      }
+      try {
+        String seats = field(fields, columns, "numberofseats");
+        String expiration = field(fields, columns, "expiration");
+        run.accept(
+            row,
+            new CreateLicenseRequest(
+                new CreateLicenseRequest.LicenseData(
+                    field(fields, columns, "key"),
+                    field(fields, columns, "aud"),
+                    field(fields, columns, "email"),
+                    field(fields, columns, "comment")),
+                serial,
+                expiration != null ? Long.valueOf(expiration) : null,
+                seats != null ? Integer.parseInt(seats) : 1));
+      } catch (NumberFormatException e) {
+        run.reject(row, serial, "expiration and numberOfSeats must be numbers.");
+      }
+    }
+  }
+
+  /** Returns the stripped value of {@code column}, {@code null} if it is blank or absent. */
+  private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+    Integer i = columns.get(column);
+    if (i == null || i >= fields.size()) return null;
+    String value = fields.get(i).strip();
+    return value.isEmpty() ? null : value;
+  }
+
+  /** Returns the constraint violations of {@code request} as one message, or {@code null}. */
+  private String validate(CreateLicenseRequest request) {
+    if (request.license() == null) return "license must not be null";
+    // LicenseData carries no @Valid, so its constraints are checked separately
+    String errors =
+        Stream.concat(
+                validator.validate(request).stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage()),
+                validator.validate(request.license()).stream()
+                    .map(v -> "license." + v.getPropertyPath() + " " + v.getMessage()))
+            .sorted()
+            .collect(Collectors.joining("; "));
+    return errors.isEmpty() ? null : errors;
+  }
+
+  /** State of one import: the pending batch, what was seen so far and the counts. */
+  private final class Run {
+    private final Consumer<ImportReport> progress;
+    private final Set<String> serials = new HashSet<>();
+    private final Set<String> keys = new HashSet<>();
+    private final List<Pending> batch = new ArrayList<>(batchSize);
+    private final List<ImportReport.RowError> errors = new ArrayList<>();
+    private long rows;
+    private long imported;
+    private long failed;
+
+    private Run(Consumer<ImportReport> progress) {
+      this.progress = progress;
+    }
+
+    void accept(long row, CreateLicenseRequest request) {
+      String error = validate(request);
+      if (error != null) {
+        reject(row, request.serial(), error);
+      } else if (serials.contains(request.serial())) {
+        reject(row, request.serial(), "Duplicate serial '" + request.serial() + "' in the import.");
+      } else if (keys.contains(request.license().key())) {
+        reject(
+            row,
+            request.serial(),
+            "Duplicate license key '" + request.license().key() + "' in the import.");
+      } else {
+        serials.add(request.serial());
+        keys.add(request.license().key());
+        batch.add(new Pending(row, request));
+        if (batch.size() >= batchSize) flush();
+      }
+    }
+
+    void reject(long row, String serial, String message) {
+      failed++;
+      failedCounter.increment();
+      if (errors.size() < maxErrors) errors.add(new ImportReport.RowError(row, serial, message));
+    }
+
+    void flush() {
+      if (batch.isEmpty()) return;
+      List<ImportReport.RowError> rejected = new ArrayList<>();
+      int written;
+      try {
+        written = insert(batch, rejected);
+      } catch (DataAccessException e) {
+        logger.warn(
+            "Import batch of {} rows rolled back, retrying row by row: {}",
+            batch.size(),
+            e.getMessage());
+        rejected.clear();
+        written = 0;
+        for (Pending p : batch) {
+          try {
+            written += insert(List.of(p), rejected);
+          } catch (DataAccessException rowError) {
+            rejected.add(
+                new ImportReport.RowError(p.row(), p.request().serial(), message(p, rowError)));
+          }
+        }
+      }
+      batch.clear();
+      imported += written;
+      importedCounter.increment(written);
+      rejected.forEach(e -> reject(e.row(), e.serial(), e.message()));
+      progress.accept(new ImportReport(rows, imported, failed, List.of()));
+    }
+
+    /** Writes {@code pending} in one transaction and returns the number of inserted licenses. */
+    private int insert(List<Pending> pending, List<ImportReport.RowError> rejected) {
+      Integer inserted = transactionTemplate.execute(status -> write(pending, rejected));
+      return inserted != null ? inserted : 0;
+    }
+
+    /** Inserts the rows that do not exist yet and collects the others. */
+    private int write(List<Pending> pending, List<ImportReport.RowError> rejected) {
+      List<String> batchSerials = pending.stream().map(p -> p.request().serial()).toList();
+      List<String> batchKeys = pending.stream().map(p -> p.request().license().key()).toList();
+      Set<String> existingSerials = new HashSet<>();
+      Set<String> existingKeys = new HashSet<>();
+      for (License l : licenseRepo.findAllByKeysOrSerials(batchKeys, batchSerials)) {
+        existingSerials.add(l.getSerial());
+        existingKeys.add(l.getLicenseKey());
+      }
+
+      LocalDateTime now = LocalDateTime.now();
+      List<License> licenses = new ArrayList<>(pending.size());
+      for (Pending p : pending) {
+        CreateLicenseRequest request = p.request();
+        if (existingSerials.contains(request.serial())) {
+          rejected.add(
+              new ImportReport.RowError(
+                  p.row(),
+                  request.serial(),
+                  "The license id '" + request.serial() + "' already exists."));
+        } else if (existingKeys.contains(request.license().key())) {
+          rejected.add(
+              new ImportReport.RowError(
+                  p.row(),
+                  request.serial(),
+                  "The license key '" + request.license().key() + "' already exists."));
+        } else {
+          licenses.add(LicenseService.newLicense(request, now));
+        }
+      }
+      return licenseRepo.insertLicenses(licenses);
+    }
+
+    ImportReport report() {
+      return new ImportReport(rows, imported, failed, List.copyOf(errors));
+    }
+  }
+
+  /** The error of a row the database rejected on its own. */
+  private static String message(Pending p, DataAccessException e) {
+    if (e instanceof DuplicateKeyException) {
+      return "The license id '"
+          + p.request().serial()
+          + "' or key '"
+          + p.request().license().key()
+          + "' already exists.";
+    }
+    return "Rejected by the database: " + e.getMostSpecificCause().getMessage();
+  }
+
+  private record Pending(long row, CreateLicenseRequest request) {}
+}
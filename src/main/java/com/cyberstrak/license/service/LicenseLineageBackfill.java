@@ -0,0 +1,38 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.repository.LicenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes the upgrade lineage closure table from {@code upgrade_from_key}, through the {@code
+ * rebuild_lineage} command. Licenses written through JPA keep their lineage current and existing
+ * rows are filled by the changeset that creates the table, so this is only needed after licenses
+ * were changed outside the application.
+ */
+@Component
+public class LicenseLineageBackfill {
+  private static final Logger logger = LoggerFactory.getLogger(LicenseLineageBackfill.class);
+
+  private final LicenseRepository licenseRepo;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${license.upgrade.max-chain-depth:64}")
+  private int maxDepth;
+
+  public LicenseLineageBackfill(
+      LicenseRepository licenseRepo, TransactionTemplate transactionTemplate) {
+    this.licenseRepo = licenseRepo;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /** Recomputes the whole closure table in one transaction; returns the number of rows. */
+  public int rebuild() {
+    Integer rows = transactionTemplate.execute(status -> licenseRepo.rebuildLineage(maxDepth));
+    logger.info("Rebuilt upgrade lineage: {} rows", rows);
+    return rows != null ? rows : 0;
+  }
+}
@@ -0,0 +1,95 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.exception.ExceptionStatus;
+import com.cyberstrak.license.jdbc.SqlStatementCounter;
+import com.cyberstrak.license.jfr.LicenseOperationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records every license operation in the {@code license.operations} timer, tagged with the
+ * operation, its outcome and the code path it took. The outcome is {@code success}, the lower-case
+ * name of the HTTP status a domain exception maps to (e.g. {@code conflict}, {@code
+ * precondition_required}), or {@code error} for anything else. Operations that write are recorded
+ * around their transaction, so a commit that fails is not counted as a success.
+ *
+ * <p>Each operation is also emitted as a {@link LicenseOperationEvent} while a flight recording
+ * is running.
+ */
+@Component
+public class LicenseMetrics {
+  public static final String TIMER = "license.operations";
+
+  private final MeterRegistry meterRegistry;
+
+  public LicenseMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** Handle through which a running operation reports the path it took. */
+  public static final class Operation {
+    private String path = "none";
+    private String productId;
+
+    public void path(String path) {
+      this.path = path;
+    }
+
+    public void productId(String productId) {
+      this.productId = productId;
+    }
+  }
+
+  public <T> T record(String operation, Function<Operation, T> action) {
+    Operation op = new Operation();
+    LicenseOperationEvent event = new LicenseOperationEvent();
+    event.begin();
+    long dbNanos = SqlStatementCounter.elapsedNanos();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return action.apply(op);
+    } catch (RuntimeException e) {
+      outcome = outcome(e);
+      throw e;
+    } finally {
+      sample.stop(
+          Timer.builder(TIMER)
+              .description("Duration of license operations")
+              .tags("operation", operation, "outcome", outcome, "path", op.path)
+              .register(meterRegistry));
+      event.end();
+      if (event.shouldCommit()) {
+        event.operation = operation;
+        event.productId = op.productId;
+        event.path = op.path;
+        event.outcome = outcome;
+        event.dbTime = SqlStatementCounter.elapsedNanos() - dbNanos;
+        event.commit();
+      }
+    }
+  }
+
+  public <T> T record(String operation, Supplier<T> action) {
+    return record(operation, op -> action.get());
+  }
+
+  public void run(String operation, Runnable action) {
+    record(
+        operation,
+        op -> {
+          action.run();
+          return null;
+        });
+  }
+
+  private static String outcome(RuntimeException e) {
+    HttpStatus status = ExceptionStatus.of(e);
+    return status != null ? status.name().toLowerCase(Locale.ROOT) : "error";
+  }
+}
@@ -0,0 +1,50 @@
+package com.cyberstrak.license.service;
+
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the seats of multi-seat licenses. A seat is claimed by inserting its row; the primary
+ * key of {@code license_seats} rejects a second claim of the same seat, so concurrent activations
+ * never lock the license row and simply move on to the next free seat when they lose a race.
+ */
+@Component
+public class LicenseSeatAllocator {
+  private static final Logger logger = LoggerFactory.getLogger(LicenseSeatAllocator.class);
+
+  private final LicenseRepository licenseRepo;
+
+  public LicenseSeatAllocator(LicenseRepository licenseRepo) {
+    this.licenseRepo = licenseRepo;
+  }
+
+  /**
+   * Claims a seat of {@code license} for {@code entityId}. Claiming again for an entity that
+   * already holds a seat returns that seat.
+   *
+   * @return the seat number, or 0 if all seats are taken
+   */
+  public int claim(License license, String entityId) {
+    String serial = license.getSerial();
+    Integer held = licenseRepo.findSeat(serial, entityId);
+    if (held != null) return held;
+
+    List<Integer> taken = licenseRepo.findTakenSeats(serial);
+    if (taken.size() >= license.getNumberOfSeats()) return 0;
+
+    for (int seat = 1; seat <= license.getNumberOfSeats(); seat++) {
+      if (taken.contains(seat)) continue;
+      if (licenseRepo.insertSeat(serial, seat, entityId, LocalDateTime.now())) return seat;
+      // the seat went to someone else, or this entity won a seat in a parallel request
+      held = licenseRepo.findSeat(serial, entityId);
+      if (held != null) return held;
+      logger.debug("Seat {} of {} was claimed concurrently", seat, serial);
+    }
+    return 0;
+  }
+}
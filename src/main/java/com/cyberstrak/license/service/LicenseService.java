@@ -1,65 +1,148 @@
 package com.cyberstrak.license.service;
 
 import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.BatchRequest;
+import com.cyberstrak.license.dto.BatchResponse;
 import com.cyberstrak.license.dto.CreateLicenseRequest;
 import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.dto.LicensePage;
+import com.cyberstrak.license.dto.LicenseSearchRequest;
 import com.cyberstrak.license.dto.LicenseUpsertRequest;
 import com.cyberstrak.license.entity.License;
 import com.cyberstrak.license.exception.BadRequestException;
 import com.cyberstrak.license.exception.ConflictException;
+import com.cyberstrak.license.exception.ExceptionStatus;
 import com.cyberstrak.license.exception.PreconditionFailedException;
 import com.cyberstrak.license.exception.PreconditionRequiredException;
+import com.cyberstrak.license.jdbc.SqlStatementCounter;
+import com.cyberstrak.license.jfr.UpgradeChainEvent;
 import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.repository.LicenseSpecifications;
+import com.cyberstrak.license.repository.LicenseView;
+import com.cyberstrak.license.repository.UpgradeChain;
+import com.cyberstrak.license.security.IssuerCredentials;
+import com.cyberstrak.license.web.ServerTiming;
 import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import javax.sql.DataSource;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
 
 /** Service for business logic related to license validation, upgrades, and entity assignment. */
 @Service
 public class LicenseService {
   private static final Logger logger = LoggerFactory.getLogger(LicenseService.class);
 
+  private static final int MAX_SEARCH_PAGE_SIZE = 200;
+
+  private static final Map<String, String> EDITIONS = Map.of("en", "Full Edition");
+
+  static final ZoneId ZONE = ZoneId.systemDefault();
+
+  private static final Map<String, String> SEARCH_SORT_PROPERTIES =
+      Map.of(
+          "id", "serial",
+          "key", "licenseKey",
+          "aud", "productId",
+          "exp", "expirationDate",
+          "date", "date");
+
   private final LicenseRepository licenseRepo;
+  private final EntityManager entityManager;
+  // operations are timed around their transaction, so that a failed commit counts as their outcome
+  private final TransactionTemplate transactionTemplate;
   private final DataSource dataSource;
+  private final LicenseCache licenseCache;
+  private final LicenseSeatAllocator seatAllocator;
+  private final IssuerCredentials issuerCredentials;
+  private final LicenseMetrics metrics;
+  // callbacks are read by clients, not people; the response is cached as compact JSON
+  private final ObjectWriter licenseWriter;
 
   @Value("${issuer.id}")
   private String ISSUER_ID;
 
-  @Value("${issuer.secret}")
-  private String ISSUER_SECRET;
-
   @Value("${issuer.name}")
   private String ISSUER_NAME;
 
   @Value("${issuer.support.url}")
   private String ISSUER_SUPPORT_URL;
 
-  public LicenseService(LicenseRepository licenseRepo, DataSource dataSource) {
+  @Value("${license.upgrade.max-chain-depth:64}")
+  private int maxUpgradeChainDepth;
+
+  @Value("${license.stream.page-size:500}")
+  private int streamPageSize;
+
+  @Value("${license.batch.max-operations:1000}")
+  private int maxBatchOperations;
+
+  public LicenseService(
+      LicenseRepository licenseRepo,
+      EntityManager entityManager,
+      TransactionTemplate transactionTemplate,
+      DataSource dataSource,
+      LicenseCache licenseCache,
+      LicenseSeatAllocator seatAllocator,
+      IssuerCredentials issuerCredentials,
+      LicenseMetrics metrics,
+      ObjectMapper objectMapper) {
     this.licenseRepo = licenseRepo;
+    this.entityManager = entityManager;
+    this.transactionTemplate = transactionTemplate;
     this.dataSource = dataSource;
+    this.licenseCache = licenseCache;
+    this.seatAllocator = seatAllocator;
+    this.issuerCredentials = issuerCredentials;
+    this.metrics = metrics;
+    this.licenseWriter =
+        objectMapper.writerFor(LicenseDto.class).without(SerializationFeature.INDENT_OUTPUT);
   }
 
   @PostConstruct
   public void logDbUrl() throws SQLException {
-    logger.debug("DB URL: {}", dataSource.getConnection().getMetaData().getURL());
+    try (Connection connection = dataSource.getConnection()) {
+      logger.debug("DB URL: {}", connection.getMetaData().getURL());
+    }
   }
 
   public boolean checkAuth(String username, String password) {
-    if (!ISSUER_ID.equals(username) || !ISSUER_SECRET.equals(password)) {
-      logger.error("Wrong user or password combination: " + username + ":" + password);
-    }
-    return ISSUER_ID.equals(username) && ISSUER_SECRET.equals(password);
+    boolean valid = issuerCredentials.matches(username, password);
+    if (!valid) logger.error("Wrong user or password for user: {}", username);
+    return valid;
   }
 
   public long count() {
@@ -67,47 +150,124 @@ public class LicenseService {
   }
 
   public LicenseDto createLicense(CreateLicenseRequest payload) {
-    String key = payload.license().key();
-    String productId = payload.license().aud();
-    String email = payload.license().email();
-    String comment = payload.license().comment();
-    String serial = payload.serial();
-    Long expiration = payload.expiration();
+    return metrics.record("create", () -> transactionTemplate.execute(status -> create(payload)));
+  }
 
-    License license = licenseRepo.findByLicenseKey(serial).orElse(null);
-    if (license != null)
-      throw new ConflictException("The license id '" + serial + "' already exists.");
+  private LicenseDto create(CreateLicenseRequest payload) {
+    License license = newLicense(payload, LocalDateTime.now());
+    saveAndFlush(license);
+    licenseCache.evict(license.getLicenseKey(), license.getProductId());
+    return toDto(license);
+  }
 
-    license = new License();
+  /**
+   * Writes the license now, so that a taken serial or key fails as a {@link ConflictException}. A
+   * new license is saved with a plain INSERT; the database reports a duplicate, it is not looked
+   * up beforehand.
+   */
+  private void saveAndFlush(License license) {
+    try {
+      licenseRepo.saveAndFlush(license);
+    } catch (DataIntegrityViolationException e) {
+      if (!isDuplicateKey(e)) throw e;
+      throw new ConflictException(
+          "The license id '"
+              + license.getSerial()
+              + "' or key '"
+              + license.getLicenseKey()
+              + "' already exists.");
+    }
+  }
+
+  /**
+   * Whether {@code e} reports a unique or primary key violation. JPA flushes are translated to a
+   * plain {@link DataIntegrityViolationException}; the violated constraint's kind comes from the
+   * Hibernate dialect. NOT NULL, length and other violations are not duplicates.
+   */
+  private static boolean isDuplicateKey(DataIntegrityViolationException e) {
+    return e instanceof DuplicateKeyException
+        || (e.getCause() instanceof ConstraintViolationException cve
+            && cve.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE);
+  }
 
-    license.setLicenseKey(key);
-    license.setProductId(productId);
-    license.setSerial(serial);
+  /** Maps a create request to a new, enabled license; shared with {@link LicenseImporter}. */
+  static License newLicense(CreateLicenseRequest payload, LocalDateTime date) {
+    Long expiration = payload.expiration();
+    License license = new License();
+
+    license.setLicenseKey(payload.license().key());
+    license.setProductId(payload.license().aud());
+    license.setSerial(payload.serial());
     license.setNumberOfSeats(payload.numberOfSeats());
 
     if (expiration != null) {
-        license.setExpirationDate(
-            LocalDateTime.ofInstant(Instant.ofEpochSecond(expiration), ZoneId.systemDefault()));
-      } else {
-        license.setExpirationDate(null);
-      }
-    license.setEmail(email);
-    license.setComment(comment);
+      license.setExpirationDate(LocalDateTime.ofInstant(Instant.ofEpochSecond(expiration), ZONE));
+    }
+    license.setEmail(payload.license().email());
+    license.setComment(payload.license().comment());
     // Defaults
     license.setEnabled(true);
-    license.setDate(LocalDateTime.now());
-
-    licenseRepo.save(license);
-    return toDto(license);
+    license.setDate(date);
+    return license;
   }
 
   public List<LicenseDto> addLicense(AddLicenseRequest payload) {
     String key = payload.license().key();
     String productId = payload.license().aud();
+
     String entityId = payload.entityId();
-    String precondition = payload.precondition();
 
-    License license = licenseRepo.findByLicenseKeyAndProductId(key, productId).orElse(null);
+    return metrics.record(
+        "add",
+        op ->
+            transactionTemplate.execute(
+                status -> {
+                  op.productId(productId);
+                  License license =
+                      licenseRepo.findByLicenseKeyAndProductId(key, productId).orElse(null);
+                  if (license != null) op.path(activationPath(license));
+                  return assignLicense(
+                      license,
+                      key,
+                      entityId,
+                      payload.precondition(),
+                      (l, date) -> licenseRepo.assignToEntity(l.getSerial(), entityId, date) == 1);
+                }));
+  }
+
+  /** Whether a license with this expiration date has expired; no date means it never expires. */
+  private static boolean isExpired(LocalDateTime expirationDate) {
+    return expirationDate != null && !expirationDate.isAfter(LocalDateTime.now());
+  }
+
+  private ConflictException expired(String key) {
+    return new ConflictException(
+        "The license key '"
+            + key
+            + "' has expired. Contact "
+            + ISSUER_NAME
+            + " ("
+            + ISSUER_SUPPORT_URL
+            + ")");
+  }
+
+  /** The {@code path} tag of an activation: {@code upgrade}, {@code seat} or {@code plain}. */
+  private static String activationPath(License license) {
+    if (license.isUpgrade()) return "upgrade";
+    return isMultiSeat(license) ? "seat" : "plain";
+  }
+
+  /**
+   * Applies the add_license rules to {@code license}, which is {@code null} if {@code key} does
+   * not exist for the requested product. Plain licenses are written through {@code assign}, which
+   * returns false if the license was taken concurrently.
+   */
+  private List<LicenseDto> assignLicense(
+      License license,
+      String key,
+      String entityId,
+      String precondition,
+      BiPredicate<License, LocalDateTime> assign) {
     if (license == null) throw new ConflictException("The license key '" + key + "' is not valid.");
 
     if (!license.isEnabled()) {
@@ -121,7 +281,11 @@ public class LicenseService {
               + ")");
     }
 
-    if (license.getEntityId() != null && !license.getEntityId().equals(entityId)) {
+    if (isExpired(license.getExpirationDate())) throw expired(key);
+
+    if (!isMultiSeat(license)
+        && license.getEntityId() != null
+        && !license.getEntityId().equals(entityId)) {
       throw new ConflictException(
           "The license key '" + key + "' is already validated by someone else.");
     }
@@ -129,8 +293,10 @@ public class LicenseService {
     if (license.isUpgrade()) {
       if (precondition == null)
         throw new PreconditionRequiredException("Previous license key required.");
-      License previous = licenseRepo.findByLicenseKey(precondition).orElse(null);
-      if (previous == null) throw new PreconditionFailedException("Invalid upgrade key.");
+      // previous license and all its ancestors in one round-trip
+      UpgradeChain chain = resolveUpgradeChain(precondition);
+      if (chain.licenses().isEmpty()) throw new PreconditionFailedException("Invalid upgrade key.");
+      License previous = chain.licenses().get(0);
       if (license.getUpgradeFromKey() != null
           && !license.getUpgradeFromKey().equals(precondition)) {
         throw new PreconditionFailedException("License already upgraded using a different key.");
@@ -139,107 +305,593 @@ public class LicenseService {
         throw new PreconditionFailedException("Previous upgrade license is unassigned.");
       }
 
+      if (chain.cyclic() || chain.truncated()) {
+        logger.warn(
+            "Upgrade chain of '{}' {}; returning its first {} licenses.",
+            precondition,
+            chain.cyclic() ? "contains a cycle" : "exceeds " + maxUpgradeChainDepth + " licenses",
+            chain.licenses().size());
+      }
+
       List<LicenseDto> licenses = new ArrayList<>(List.of(toDto(previous), toDto(license)));
-      License a = previous;
-      while (a.getUpgradeFromKey() != null) {
-        a = licenseRepo.findByLicenseKey(a.getUpgradeFromKey()).orElse(null);
-        if (a != null) {
+      for (License a : chain.licenses().subList(1, chain.licenses().size())) {
+        if (!a.getSerial().equals(license.getSerial())) {
           licenses.add(toDto(a));
         }
       }
       return licenses;
+    } else if (isMultiSeat(license)) {
+      if (seatAllocator.claim(license, entityId) == 0) {
+        throw new ConflictException(
+            "All "
+                + license.getNumberOfSeats()
+                + " seats of the license key '"
+                + key
+                + "' are in use.");
+      }
+      return List.of(toDto(license));
     } else {
+      LocalDateTime now = LocalDateTime.now();
+      if (!assign.test(license, now)) {
+        throw new ConflictException(
+            "The license key '" + key + "' is already validated by someone else.");
+      }
       license.setEntityId(entityId);
-      license.setDate(LocalDateTime.now());
-      licenseRepo.save(license);
+      license.setDate(now);
+      licenseCache.evict(key, license.getProductId());
       return List.of(toDto(license));
     }
   }
 
+  /**
+   * Reads the chain of {@code licenseKey} from the lineage closure table, cut after {@link
+   * #maxUpgradeChainDepth} licenses. The table records no cycles, so that chain always ends. A
+   * license without lineage rows, e.g. one written by plain SQL or restored before {@code
+   * rebuild_lineage} ran, is followed through its upgrade links instead, which stops at a cycle.
+   */
+  private UpgradeChain resolveUpgradeChain(String licenseKey) {
+    UpgradeChainEvent event = new UpgradeChainEvent();
+    event.begin();
+    long dbNanos = SqlStatementCounter.elapsedNanos();
+    List<License> lineage = licenseRepo.findLineageByKey(licenseKey);
+    UpgradeChain chain;
+    if (lineage.isEmpty()) {
+      chain = licenseRepo.findUpgradeChain(licenseKey, maxUpgradeChainDepth);
+    } else if (lineage.size() > maxUpgradeChainDepth) {
+      chain = new UpgradeChain(lineage.subList(0, maxUpgradeChainDepth), false, true);
+    } else {
+      chain = new UpgradeChain(lineage, false, false);
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.licenseKey = licenseKey;
+      event.chainLength = chain.licenses().size();
+      event.cyclic = chain.cyclic();
+      event.truncated = chain.truncated();
+      event.dbTime = SqlStatementCounter.elapsedNanos() - dbNanos;
+      event.commit();
+    }
+    return chain;
+  }
+
+  /**
+   * Returns all licenses of the upgrade family of {@code key}, original license first, with one
+   * lookup in the lineage closure table.
+   */
+  public List<LicenseDto> getUpgradeFamily(String key) {
+    List<License> family = licenseRepo.findUpgradeFamily(key);
+    if (family.isEmpty()) throw new BadRequestException("The license key is not valid");
+    return family.stream().map(this::toDto).toList();
+  }
+
+  /**
+   * Unassigns all licenses of {@code cluster} from {@code entityId}, or none of them if any does
+   * not belong to the entity. The cluster is read with one query and released with one conditional
+   * UPDATE; if a concurrent change lets that update miss a row, the whole release is rolled back.
+   */
   public void removeLicenses(List<LicenseDto> cluster, String entityId) {
+    metrics.run(
+        "remove",
+        () -> transactionTemplate.executeWithoutResult(status -> release(cluster, entityId)));
+  }
+
+  private void release(List<LicenseDto> cluster, String entityId) {
+    Set<String> ids = new HashSet<>();
+    for (LicenseDto dto : cluster) {
+      if (dto.id() != null) ids.add(dto.id());
+    }
+    Map<String, License> bySerial = new HashMap<>();
+    licenseRepo.findAllById(ids).forEach(l -> bySerial.put(l.getSerial(), l));
+
+    Set<String> seated = findSeatedSerials(bySerial.values(), entityId);
+    List<License> found =
+        matchCluster(
+            cluster, entityId, seated, serial -> Optional.ofNullable(bySerial.get(serial)));
+    Set<String> rowSerials = new HashSet<>();
+    Set<String> seatSerials = new HashSet<>();
+    found.forEach(l -> (isMultiSeat(l) ? seatSerials : rowSerials).add(l.getSerial()));
+
+    int released = licenseRepo.deleteSeats(seatSerials, entityId);
+    if (!rowSerials.isEmpty()) {
+      released += licenseRepo.releaseFromEntity(rowSerials, entityId, LocalDateTime.now());
+    }
+    if (released != rowSerials.size() + seatSerials.size()) {
+      throw new ConflictException("Mismatch in license cluster.");
+    }
+    found.forEach(l -> licenseCache.evict(l.getLicenseKey(), l.getProductId()));
+  }
+
+  /** Returns the licenses held by {@code entityId}, directly or through a seat, in serial order. */
+  public List<LicenseDto> getEntityLicenses(String entityId) {
+    return licenseRepo.findByEntityId(entityId).stream().map(this::toDto).toList();
+  }
+
+  /**
+   * Releases every license held by {@code entityId} and returns them as released: one UPDATE
+   * unassigns its licenses and one DELETE frees its seats. Only the licenses read here are touched,
+   * so each one released is also evicted from the cache.
+   */
+  public List<LicenseDto> releaseEntity(String entityId) {
+    return metrics.record(
+        "release", () -> transactionTemplate.execute(status -> releaseAll(entityId)));
+  }
+
+  private List<LicenseDto> releaseAll(String entityId) {
+    List<License> held = licenseRepo.findByEntityId(entityId);
+    Set<String> rowSerials = new HashSet<>();
+    Set<String> seatSerials = new HashSet<>();
+    held.forEach(l -> (isMultiSeat(l) ? seatSerials : rowSerials).add(l.getSerial()));
+
+    LocalDateTime now = LocalDateTime.now();
+    licenseRepo.deleteSeats(seatSerials, entityId);
+    if (!rowSerials.isEmpty()) licenseRepo.releaseFromEntity(rowSerials, entityId, now);
+
+    List<LicenseDto> released = new ArrayList<>(held.size());
+    for (License l : held) {
+      licenseCache.evict(l.getLicenseKey(), l.getProductId());
+      if (!isMultiSeat(l)) {
+        l.setEntityId(null);
+        l.setDate(now);
+      }
+      released.add(toDto(l));
+    }
+    return released;
+  }
+
+  /** Batch variant of {@link #removeLicenses} on licenses already loaded into the transaction. */
+  private void releaseLicenses(
+      List<LicenseDto> cluster, String entityId, Function<String, Optional<License>> lookup) {
+    List<License> candidates = new ArrayList<>();
+    for (LicenseDto dto : cluster) lookup.apply(dto.id()).ifPresent(candidates::add);
+    Set<String> seated = findSeatedSerials(candidates, entityId);
+    List<License> found = matchCluster(cluster, entityId, seated, lookup);
+
+    Set<String> seatSerials = new HashSet<>();
+    for (License l : found) {
+      if (isMultiSeat(l)) {
+        seatSerials.add(l.getSerial());
+      } else {
+        l.setEntityId(null);
+        l.setDate(LocalDateTime.now());
+      }
+    }
+    licenseRepo.deleteSeats(seatSerials, entityId);
+    licenseRepo.saveAll(found.stream().filter(l -> !isMultiSeat(l)).toList());
+    found.forEach(l -> licenseCache.evict(l.getLicenseKey(), l.getProductId()));
+  }
+
+  /** Serials of the multi-seat licenses among {@code licenses} on which the entity holds a seat. */
+  private Set<String> findSeatedSerials(Collection<License> licenses, String entityId) {
+    List<String> multiSeat =
+        licenses.stream().filter(LicenseService::isMultiSeat).map(License::getSerial).toList();
+    return multiSeat.isEmpty() ? Set.of() : licenseRepo.findSeatedSerials(multiSeat, entityId);
+  }
+
+  /**
+   * Licenses with more than one seat are assigned through {@code license_seats}; their row's
+   * entity id stays unset.
+   */
+  private static boolean isMultiSeat(License license) {
+    return license.getNumberOfSeats() > 1;
+  }
+
+  /**
+   * Resolves each license of {@code cluster} through {@code lookup} and checks that it belongs to
+   * {@code entityId} and the given product. Multi-seat licenses belong to the entity if their
+   * serial is in {@code seated}.
+   */
+  private static List<License> matchCluster(
+      List<LicenseDto> cluster,
+      String entityId,
+      Set<String> seated,
+      Function<String, Optional<License>> lookup) {
     List<License> found = new ArrayList<>();
 
     for (LicenseDto dto : cluster) {
       String serial = dto.id();
       String aud = dto.aud();
 
-      licenseRepo
-          .findById(serial)
+      lookup
+          .apply(serial)
           .ifPresent(
               license -> {
-                if (license.getProductId().equals(aud) && entityId.equals(license.getEntityId())) {
+                boolean held =
+                    isMultiSeat(license)
+                        ? seated.contains(license.getSerial())
+                        : entityId.equals(license.getEntityId());
+                if (license.getProductId().equals(aud) && held) {
                   found.add(license);
                 }
               });
     }
 
-    if (found.size() == cluster.size()) {
-      found.forEach(
-          l -> {
-            l.setEntityId(null);
-            l.setDate(LocalDateTime.now());
-          });
-      licenseRepo.saveAll(found);
-    } else {
+    if (found.size() != cluster.size()) {
       throw new ConflictException("Mismatch in license cluster.");
     }
+    return found;
   }
 
+  /**
+   * Applies a batch of add, remove and get operations in one transaction. All licenses the batch
+   * refers to are loaded up front with a single query, and the resulting updates are written as
+   * JDBC batches on commit. Licenses are assigned with the same conditional UPDATE as add_license,
+   * so one taken concurrently fails only its operation. Operations run in order and see the effects
+   * of earlier ones; an operation that fails a license rule is reported in its result and leaves
+   * the others intact.
+   */
+  public BatchResponse executeBatch(List<BatchRequest.Operation> operations) {
+    return metrics.record(
+        "batch", () -> transactionTemplate.execute(status -> applyBatch(operations)));
+  }
+
+  private BatchResponse applyBatch(List<BatchRequest.Operation> operations) {
+    if (operations.size() > maxBatchOperations) {
+      throw new BadRequestException(
+          "A batch may contain at most " + maxBatchOperations + " operations.");
+    }
+
+    Set<String> keys = new HashSet<>();
+    Set<String> serials = new HashSet<>();
+    for (BatchRequest.Operation op : operations) {
+      if (op.license() != null && op.license().key() != null) keys.add(op.license().key());
+      if (op.precondition() != null) keys.add(op.precondition());
+      if (op.licenseCluster() != null && op.licenseCluster().licenses() != null) {
+        for (LicenseDto dto : op.licenseCluster().licenses()) {
+          if (dto.id() != null) serials.add(dto.id());
+        }
+      }
+    }
+
+    Map<String, License> byKey = new HashMap<>();
+    Map<String, License> bySerial = new HashMap<>();
+    if (!keys.isEmpty() || !serials.isEmpty()) {
+      for (License license : licenseRepo.findAllByKeysOrSerials(keys, serials)) {
+        byKey.put(license.getLicenseKey(), license);
+        bySerial.put(license.getSerial(), license);
+      }
+    }
+
+    List<BatchResponse.Result> results = new ArrayList<>(operations.size());
+    for (int i = 0; i < operations.size(); i++) {
+      try {
+        List<LicenseDto> licenses = applyBatchOperation(operations.get(i), byKey, bySerial);
+        results.add(new BatchResponse.Result(i, HttpStatus.OK.value(), licenses, null));
+      } catch (RuntimeException e) {
+        // only domain exceptions carry a status; anything else rolls back the whole batch, as
+        // does any persistence failure, after which the session cannot be used any more
+        HttpStatus status = ExceptionStatus.of(e);
+        if (status == null || e instanceof DataAccessException) throw e;
+        results.add(new BatchResponse.Result(i, status.value(), null, e.getMessage()));
+      }
+    }
+    logger.debug("Applied batch of {} operations", operations.size());
+    return new BatchResponse(results);
+  }
+
+  private List<LicenseDto> applyBatchOperation(
+      BatchRequest.Operation op, Map<String, License> byKey, Map<String, License> bySerial) {
+    // checked per operation, so that it fails only this one and not the whole batch
+    if (op.op() == null) throw new BadRequestException("op is required.");
+    return switch (op.op()) {
+      case "add" -> {
+        AddLicenseRequest.LicenseData data = requireLicenseData(op);
+        if (op.entityId() == null) throw new BadRequestException("entityId is required.");
+        License license = byKey.get(data.key());
+        if (license != null && !license.getProductId().equals(data.aud())) license = null;
+        // upgrade chains are read over JDBC, so earlier changes of this batch must be flushed first
+        if (license != null && license.isUpgrade()) licenseRepo.flush();
+        List<LicenseDto> assigned =
+            assignLicense(
+                license,
+                data.key(),
+                op.entityId(),
+                op.precondition(),
+                (l, date) ->
+                    licenseRepo.assignLoadedToEntity(l.getSerial(), op.entityId(), date) == 1);
+        // the UPDATE bypassed the loaded license; later operations must change its new version
+        if (!license.isUpgrade() && !isMultiSeat(license)) entityManager.refresh(license);
+        yield assigned;
+      }
+      case "remove" -> {
+        if (op.entityId() == null
+            || op.licenseCluster() == null
+            || op.licenseCluster().licenses() == null) {
+          throw new BadRequestException("licenseCluster and entityId are required.");
+        }
+        releaseLicenses(
+            op.licenseCluster().licenses(),
+            op.entityId(),
+            serial -> Optional.ofNullable(bySerial.get(serial)));
+        yield List.of();
+      }
+      case "get" -> {
+        AddLicenseRequest.LicenseData data = requireLicenseData(op);
+        License license = byKey.get(data.key());
+        if (license == null || !license.getProductId().equals(data.aud())) {
+          throw new BadRequestException("The license key is not valid");
+        }
+        // as get_license
+        if (isExpired(license.getExpirationDate())) throw expired(data.key());
+        yield List.of(toDto(license));
+      }
+      default -> throw new BadRequestException("Unknown operation '" + op.op() + "'.");
+    };
+  }
+
+  private static AddLicenseRequest.LicenseData requireLicenseData(BatchRequest.Operation op) {
+    if (op.license() == null || op.license().key() == null || op.license().aud() == null) {
+      throw new BadRequestException("license key and aud are required.");
+    }
+    return op.license();
+  }
+
+  // not transactional: a cache hit must not check out a connection
   public LicenseDto getLicense(String key, String aud) {
-    return licenseRepo
-        .findByLicenseKeyAndProductId(key, aud)
-        .map(this::toDto)
-        .orElseThrow(() -> new BadRequestException("The license key is not valid"));
+    return cachedEntry(key, aud).license();
   }
 
+  /** Returns the license as compact JSON, ready to be written to a {@code get_license} response. */
+  public byte[] getLicenseJson(String key, String aud) {
+    return cachedEntry(key, aud).json();
+  }
+
+  private LicenseCache.Entry cachedEntry(String key, String aud) {
+    return metrics.record(
+        "get",
+        op -> {
+          op.productId(aud);
+          LicenseCache.Entry entry = licenseCache.get(key, aud, () -> loadEntry(key, aud));
+          // judged on the cached copy, which carries the expiration date
+          Long exp = entry.license().exp();
+          if (exp != null && exp <= Instant.now().getEpochSecond()) throw expired(key);
+          return entry;
+        });
+  }
+
+  private LicenseDto cachedLicense(String key, String aud) {
+    return licenseCache.get(key, aud, () -> loadEntry(key, aud)).license();
+  }
+
+  private LicenseCache.Entry loadEntry(String key, String aud) {
+    LicenseDto license =
+        licenseRepo
+            .findViewByLicenseKeyAndProductId(key, aud)
+            .map(this::toDto)
+            .orElseThrow(() -> new BadRequestException("The license key is not valid"));
+    ServerTiming timing = ServerTiming.current();
+    long started = System.nanoTime();
+    byte[] json = licenseWriter.writeValueAsBytes(license);
+    if (timing != null) timing.add(ServerTiming.SERIALIZE, System.nanoTime() - started);
+    return new LicenseCache.Entry(license, json);
+  }
+
+  @Transactional(readOnly = true)
   public LicenseDto getLicense(String id) {
     return licenseRepo
-        .findById(id)
+        .findViewById(id)
         .map(this::toDto)
         .orElseThrow(() -> new BadRequestException("The license key is not valid"));
   }
 
   public LicenseDto eraseLicense(String key) {
+    return metrics.record("erase", () -> transactionTemplate.execute(status -> erase(key)));
+  }
+
+  private LicenseDto erase(String key) {
     License license = licenseRepo.findByLicenseKey(key).orElse(null);
     if (license == null) throw new ConflictException("The license key '" + key + "' is not valid.");
-    if (license.getEntityId() != null)
+    if (license.getEntityId() != null || licenseRepo.countSeats(license.getSerial()) > 0)
       throw new ConflictException("The license key '" + key + "' is in use. Remove license first!");
     licenseRepo.delete(license);
+    licenseCache.evict(license.getLicenseKey(), license.getProductId());
     return toDto(license);
   }
 
+  /** Reads all licenses through the same keyset pages as {@code /dump_licenses}. */
   public List<LicenseDto> dumpLicenses() {
-    return licenseRepo.findAll().stream().map(this::toDto).toList();
+    List<LicenseDto> licenses = new ArrayList<>();
+    streamLicenses(null, 0, licenses::add);
+    return licenses;
   }
 
-  private LicenseDto toDto(License l) {
-    Map<String, String> editions = Map.of("en", "Full Edition");
-    Long exp =
-        l.getExpirationDate() != null
-            ? l.getExpirationDate().atZone(ZoneId.systemDefault()).toEpochSecond()
-            : null;
-    Object metadata = null;
+  /**
+   * Streams licenses in serial order to {@code sink}, reading the table in keyset pages so that
+   * memory use does not grow with the table size.
+   *
+   * @param cursor serial to resume after, or {@code null} to start at the beginning
+   * @param limit maximum number of licenses to emit, or {@code 0} for no limit
+   * @return number of licenses emitted
+   */
+  // not transactional: each page is read in its own transaction, so no connection is held while
+  // the sink writes to a slow client
+  public long streamLicenses(String cursor, long limit, Consumer<LicenseDto> sink) {
+    return metrics.record("dump", () -> stream(cursor, limit, sink));
+  }
 
-    return new LicenseDto(
+  private long stream(String cursor, long limit, Consumer<LicenseDto> sink) {
+    if (limit < 0) throw new BadRequestException("The limit must not be negative.");
+    long remaining = limit == 0 ? Long.MAX_VALUE : limit;
+    long emitted = 0;
+    String after = cursor;
+    while (remaining > 0) {
+      int pageSize = (int) Math.min(remaining, streamPageSize);
+      List<License> page = licenseRepo.findPageAfter(after, pageSize);
+      for (License l : page) {
+        sink.accept(toDto(l));
+      }
+      emitted += page.size();
+      remaining -= page.size();
+      if (page.size() < pageSize) break;
+      after = page.get(page.size() - 1).getSerial();
+    }
+    return emitted;
+  }
+
+  /**
+   * Searches licenses with all filtering, sorting and paging done in the database.
+   *
+   * @param sort sort property ({@code id}, {@code key}, {@code aud}, {@code exp} or {@code date}),
+   *     optionally followed by {@code ,asc} or {@code ,desc}
+   */
+  @Transactional(readOnly = true)
+  public LicensePage searchLicenses(
+      LicenseSearchRequest criteria, int page, int size, String sort) {
+    if (page < 0) throw new BadRequestException("The page must not be negative.");
+    if (size < 1 || size > MAX_SEARCH_PAGE_SIZE)
+      throw new BadRequestException(
+          "The page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE + ".");
+
+    List<Specification<License>> filters = new ArrayList<>();
+    if (criteria.key() != null && !criteria.key().isBlank())
+      filters.add(LicenseSpecifications.keyStartsWith(criteria.key()));
+    if (criteria.productId() != null)
+      filters.add(LicenseSpecifications.productId(criteria.productId()));
+    if (criteria.entityId() != null)
+      filters.add(LicenseSpecifications.entityId(criteria.entityId()));
+    if (criteria.enabled() != null)
+      filters.add(LicenseSpecifications.enabled(criteria.enabled()));
+    if (criteria.expiresAfter() != null)
+      filters.add(LicenseSpecifications.expiresOnOrAfter(fromEpochSecond(criteria.expiresAfter())));
+    if (criteria.expiresBefore() != null)
+      filters.add(
+          LicenseSpecifications.expiresOnOrBefore(fromEpochSecond(criteria.expiresBefore())));
+
+    Page<License> result =
+        licenseRepo.findAll(
+            Specification.allOf(filters), PageRequest.of(page, size, searchSort(sort)));
+    return new LicensePage(
+        result.getContent().stream().map(this::toDto).toList(),
+        result.getTotalElements(),
+        page,
+        size);
+  }
+
+  private static Sort searchSort(String sort) {
+    if (sort == null || sort.isBlank()) return Sort.by("serial");
+    String[] parts = sort.split(",", 2);
+    String property = SEARCH_SORT_PROPERTIES.get(parts[0].trim());
+    if (property == null) throw new BadRequestException("Unsupported sort property: " + parts[0]);
+    Sort.Direction direction =
+        parts.length > 1 ? Sort.Direction.fromOptionalString(parts[1].trim()).orElse(null) : null;
+    if (parts.length > 1 && direction == null)
+      throw new BadRequestException("Unsupported sort direction: " + parts[1]);
+    Sort primary = Sort.by(direction != null ? direction : Sort.Direction.ASC, property);
+    // serial keeps the order stable across pages when the primary property has duplicates
+    return property.equals("serial") ? primary : primary.and(Sort.by("serial"));
+  }
+
+  private static LocalDateTime fromEpochSecond(long epochSecond) {
+    return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZONE);
+  }
+
+  public LicenseDto toDto(License l) {
+    ServerTiming timing = ServerTiming.current();
+    if (timing == null) return mapToDto(l);
+    long started = System.nanoTime();
+    try {
+      return mapToDto(l);
+    } finally {
+      timing.add(ServerTiming.MAP, System.nanoTime() - started);
+    }
+  }
+
+  /** Maps a read model, which read paths select instead of managed entities. */
+  public LicenseDto toDto(LicenseView v) {
+    ServerTiming timing = ServerTiming.current();
+    if (timing == null) return mapToDto(v);
+    long started = System.nanoTime();
+    try {
+      return mapToDto(v);
+    } finally {
+      timing.add(ServerTiming.MAP, System.nanoTime() - started);
+    }
+  }
+
+  private LicenseDto mapToDto(License l) {
+    return dto(
         l.getSerial(),
         l.getLicenseKey(),
         l.getProductId(),
         l.getEntityId(),
         l.isEnabled(),
-        ISSUER_ID,
-        exp,
+        l.getExpirationDate(),
         l.getNumberOfSeats(),
-        editions,
-        metadata,
         l.getEmail(),
         l.getComment());
   }
 
+  private LicenseDto mapToDto(LicenseView v) {
+    return dto(
+        v.serial(),
+        v.licenseKey(),
+        v.productId(),
+        v.entityId(),
+        v.enabled(),
+        v.expirationDate(),
+        v.numberOfSeats(),
+        v.email(),
+        v.comment());
+  }
+
+  private LicenseDto dto(
+      String serial,
+      String licenseKey,
+      String productId,
+      String entityId,
+      boolean enabled,
+      LocalDateTime expirationDate,
+      int numberOfSeats,
+      String email,
+      String comment) {
+    Long exp = expirationDate != null ? expirationDate.atZone(ZONE).toEpochSecond() : null;
+    Object metadata = null;
+
+    return new LicenseDto(
+        serial,
+        licenseKey,
+        productId,
+        entityId,
+        enabled,
+        ISSUER_ID,
+        exp,
+        numberOfSeats,
+        EDITIONS,
+        metadata,
+        email,
+        comment);
+  }
+
   public LicenseDto updateLicense(String key, LicenseUpsertRequest payload) {
+    return metrics.record(
+        "update", () -> transactionTemplate.execute(status -> update(key, payload)));
+  }
+
+  private LicenseDto update(String key, LicenseUpsertRequest payload) {
     var existing = licenseRepo.findByLicenseKey(key).orElse(null);
     if (existing == null) {
       throw new ConflictException("The license key '" + key + "' is in use. Remove license first!");
     }
+    licenseCache.evict(existing.getLicenseKey(), existing.getProductId());
 
     existing.setLicenseKey(payload.key());
     existing.setProductId(payload.aud());
@@ -247,17 +899,22 @@ public class LicenseService {
     if (payload.expiration() != null) {
     	  existing.setExpirationDate(
     	      LocalDateTime.ofInstant(
-    	          Instant.ofEpochSecond(payload.expiration()), ZoneId.systemDefault()));
+    	          Instant.ofEpochSecond(payload.expiration()), ZONE));
     	} else {
     	  existing.setExpirationDate(null);
     	}
 
-    licenseRepo.save(existing);
+    saveAndFlush(existing);
+    licenseCache.evict(payload.key(), payload.aud());
 
-    return getLicense(payload.key(), payload.aud());
+    return cachedLicense(payload.key(), payload.aud());
   }
 
   public LicenseDto createLicense(LicenseUpsertRequest payload) {
+    return metrics.record("create", () -> transactionTemplate.execute(status -> create(payload)));
+  }
+
+  private LicenseDto create(LicenseUpsertRequest payload) {
     var existing = new License();
     existing.setSerial(UUID.randomUUID().toString());
     existing.setNumberOfSeats(1);
@@ -268,8 +925,9 @@ public class LicenseService {
     existing.setEnabled(payload.active());
     existing.setExpirationDate(LocalDateTime.now().plusYears(1));
 
-    licenseRepo.save(existing);
+    saveAndFlush(existing);
+    licenseCache.evict(payload.key(), payload.aud());
 
-    return getLicense(payload.key());
+    return toDto(existing);
   }
 }
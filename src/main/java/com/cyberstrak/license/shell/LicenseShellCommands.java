@@ -1,7 +1,10 @@
 package com.cyberstrak.license.shell;
 
+import com.cyberstrak.license.dto.LicenseDto;
 import com.cyberstrak.license.entity.License;
 import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.repository.LicenseView;
+import com.cyberstrak.license.service.LicenseService;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -13,6 +16,7 @@ import org.springframework.shell.standard.ShellMethod;
 public class LicenseShellCommands {
 
   @Autowired private LicenseRepository licenseRepository;
+  @Autowired private LicenseService licenseService;
 
   @ShellMethod(key = "create-license", value = "Populates the license table with default data")
   public String createLicense() {
@@ -46,7 +50,7 @@ public class LicenseShellCommands {
 
   @ShellMethod(key = "list-license", value = "List all licenses.")
   public String listLicense() {
-    List<License> licenses = licenseRepository.findAll();
+    List<LicenseView> licenses = licenseRepository.findAllViews();
 
     if (licenses.isEmpty()) {
       return "No licenses found.";
@@ -57,10 +61,10 @@ public class LicenseShellCommands {
             license ->
                 String.format(
                     "- %s | key: %s | product: %s | enabled: %s",
-                    license.getSerial(),
-                    license.getLicenseKey(),
-                    license.getProductId(),
-                    license.isEnabled()))
+                    license.serial(),
+                    license.licenseKey(),
+                    license.productId(),
+                    license.enabled()))
         .collect(Collectors.joining("\n", "Found licenses:\n", ""));
   }
 
@@ -91,4 +95,37 @@ public class LicenseShellCommands {
                     license.getDate() != null ? license.getDate() : "N/A"))
         .orElse("No license found with key: " + key);
   }
+
+  @ShellMethod(key = "list-entity-licenses", value = "List the licenses held by an entity.")
+  public String listEntityLicenses(String entityId) {
+    List<License> licenses = licenseRepository.findByEntityId(entityId);
+
+    if (licenses.isEmpty()) {
+      return "No licenses found for entity: " + entityId;
+    }
+
+    return licenses.stream()
+        .map(
+            license ->
+                String.format(
+                    "- %s | key: %s | product: %s | seats: %d",
+                    license.getSerial(),
+                    license.getLicenseKey(),
+                    license.getProductId(),
+                    license.getNumberOfSeats()))
+        .collect(Collectors.joining("\n", "Licenses of " + entityId + ":\n", ""));
+  }
+
+  @ShellMethod(key = "release-entity", value = "Release all licenses held by an entity.")
+  public String releaseEntity(String entityId) {
+    List<LicenseDto> released = licenseService.releaseEntity(entityId);
+
+    if (released.isEmpty()) {
+      return "No licenses found for entity: " + entityId;
+    }
+
+    return released.stream()
+        .map(license -> "- " + license.id() + " | key: " + license.key())
+        .collect(Collectors.joining("\n", "Released licenses:\n", ""));
+  }
 }
@@ -0,0 +1,142 @@
+package com.cyberstrak.license.web;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Runs a callback right before the response is committed, so that a filter can add headers
+ * computed while the request ran without buffering the body. The body is passed through as it is
+ * written; the response is taken to commit when it is flushed, when the written bytes reach the
+ * buffer size of the response, on an error or redirect, or when the filter calls {@link
+ * #complete()}.
+ */
+class BeforeCommitResponseWrapper extends HttpServletResponseWrapper {
+  private final Runnable beforeCommit;
+  private boolean done;
+  private long written;
+  private ServletOutputStream outputStream;
+  private PrintWriter writer;
+
+  BeforeCommitResponseWrapper(HttpServletResponse response, Runnable beforeCommit) {
+    super(response);
+    this.beforeCommit = beforeCommit;
+  }
+
+  /**
+   * Runs the callback unless it ran already and flushes a pending writer. Called once the request
+   * completed normally; after an exception the response is left uncommitted for the error page.
+   */
+  void complete() {
+    commit();
+    if (writer != null) writer.flush();
+  }
+
+  private void commit() {
+    if (done) return;
+    done = true;
+    if (!getResponse().isCommitted()) beforeCommit.run();
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (outputStream == null) outputStream = new Stream(super.getOutputStream());
+    return outputStream;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (writer == null) {
+      writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+    }
+    return writer;
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    commit();
+    if (writer != null) writer.flush();
+    super.flushBuffer();
+  }
+
+  @Override
+  public void sendError(int sc, String msg) throws IOException {
+    commit();
+    super.sendError(sc, msg);
+  }
+
+  @Override
+  public void sendError(int sc) throws IOException {
+    commit();
+    super.sendError(sc);
+  }
+
+  @Override
+  public void sendRedirect(String location) throws IOException {
+    commit();
+    super.sendRedirect(location);
+  }
+
+  @Override
+  public void resetBuffer() {
+    super.resetBuffer();
+    written = 0;
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    written = 0;
+  }
+
+  private void writing(int len) {
+    written += len;
+    if (written >= getBufferSize()) commit();
+  }
+
+  private class Stream extends ServletOutputStream {
+    private final ServletOutputStream out;
+
+    Stream(ServletOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      writing(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      writing(len);
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      commit();
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      commit();
+      out.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener listener) {
+      out.setWriteListener(listener);
+    }
+  }
+}
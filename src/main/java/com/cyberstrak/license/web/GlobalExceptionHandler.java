@@ -7,10 +7,12 @@ import jakarta.validation.ConstraintViolationException;
 import java.util.stream.Collectors;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.crossstore.ChangeSetPersister.NotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -49,6 +51,21 @@ public class GlobalExceptionHandler {
     return build(HttpStatus.CONFLICT, ex.getMessage(), req);
   }
 
+  // Gleichzeitige Änderung derselben Lizenz (@Version)
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  public ResponseEntity<ErrorResponse> handleOptimisticLocking(
+      ObjectOptimisticLockingFailureException ex, HttpServletRequest req) {
+    return build(HttpStatus.CONFLICT, "The license was modified concurrently; retry.", req);
+  }
+
+  // Eindeutige Seriennummer oder Lizenzschlüssel bereits vergeben, erkannt von der Datenbank
+  @ExceptionHandler(DuplicateKeyException.class)
+  public ResponseEntity<ErrorResponse> handleDuplicateKey(
+      DuplicateKeyException ex, HttpServletRequest req) {
+    return build(
+        HttpStatus.CONFLICT, "The license conflicts with an existing license id or key.", req);
+  }
+
   @ExceptionHandler(NotFoundException.class)
   public ResponseEntity<ErrorResponse> handleNotFound(
       NotFoundException ex, HttpServletRequest req) {
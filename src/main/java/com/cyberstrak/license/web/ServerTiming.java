@@ -0,0 +1,76 @@
+package com.cyberstrak.license.web;
+
+import java.util.Locale;
+
+/**
+ * Time spent per phase of the current request, reported in the {@code Server-Timing} response
+ * header by {@link ServerTimingFilter}. Code on the request thread adds to a phase only if {@link
+ * #current()} is not {@code null}, so requests that are not timed pay for a thread-local lookup
+ * only.
+ */
+public final class ServerTiming {
+  public static final String HEADER = "Server-Timing";
+
+  /** Authentication of the caller, by JWT or Basic credentials. */
+  public static final int AUTH = 0;
+
+  /** Execution of SQL statements. */
+  public static final int DB = 1;
+
+  /** Mapping of entities to DTOs. */
+  public static final int MAP = 2;
+
+  /** Writing the response body, mostly JSON serialization. */
+  public static final int SERIALIZE = 3;
+
+  private static final String[] NAMES = {"auth", "db", "map", "serialize"};
+  private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+  private final long started = System.nanoTime();
+  private final long[] nanos = new long[NAMES.length];
+  private long bodyStarted;
+
+  private ServerTiming() {}
+
+  /** Returns the timing of the request on this thread, or {@code null} if it is not timed. */
+  public static ServerTiming current() {
+    return CURRENT.get();
+  }
+
+  static ServerTiming start() {
+    ServerTiming timing = new ServerTiming();
+    CURRENT.set(timing);
+    return timing;
+  }
+
+  static void stop() {
+    CURRENT.remove();
+  }
+
+  public void add(int phase, long nanos) {
+    this.nanos[phase] += nanos;
+  }
+
+  /** Marks that the response body is about to be written. */
+  void bodyStarted() {
+    if (bodyStarted == 0) bodyStarted = System.nanoTime();
+  }
+
+  /** Renders the header value, counting the time since {@link #bodyStarted()} as serialization. */
+  String header() {
+    long now = System.nanoTime();
+    if (bodyStarted != 0) nanos[SERIALIZE] += now - bodyStarted;
+    StringBuilder header = new StringBuilder(96);
+    for (int i = 0; i < NAMES.length; i++) {
+      if (nanos[i] > 0) metric(header, NAMES[i], nanos[i]).append(", ");
+    }
+    return metric(header, "total", now - started).toString();
+  }
+
+  private static StringBuilder metric(StringBuilder header, String name, long nanos) {
+    return header
+        .append(name)
+        .append(";dur=")
+        .append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+  }
+}
@@ -0,0 +1,66 @@
+package com.cyberstrak.license.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Times the phases of a request and returns them in a {@code Server-Timing} header. A request is
+ * timed if it carries an {@value #REQUEST_HEADER} header and {@code license.server-timing.opt-in}
+ * is on, or if it is picked by {@code license.server-timing.sample-rate}. The header is honored
+ * before authentication, so opt-in is off by default: enabled, any client could read the
+ * authentication timing.
+ *
+ * <p>Runs ahead of Spring Security so that authentication is part of the timing. The header has to
+ * precede the body, so it is rendered right before the response is committed and the body is not
+ * buffered: a streamed response such as {@code /dump_licenses} reports the time until its first
+ * bytes are sent, all other responses the whole request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ServerTimingFilter extends OncePerRequestFilter {
+  public static final String REQUEST_HEADER = "X-Server-Timing";
+
+  private final boolean optIn;
+  private final double sampleRate;
+
+  public ServerTimingFilter(
+      @Value("${license.server-timing.opt-in:false}") boolean optIn,
+      @Value("${license.server-timing.sample-rate:0}") double sampleRate) {
+    this.optIn = optIn;
+    this.sampleRate = sampleRate;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    if (!timed(request)) {
+      chain.doFilter(request, response);
+      return;
+    }
+    ServerTiming timing = ServerTiming.start();
+    BeforeCommitResponseWrapper wrapped =
+        new BeforeCommitResponseWrapper(
+            response, () -> response.setHeader(ServerTiming.HEADER, timing.header()));
+    try {
+      chain.doFilter(request, wrapped);
+      wrapped.complete();
+    } finally {
+      ServerTiming.stop();
+    }
+  }
+
+  private boolean timed(HttpServletRequest request) {
+    if (optIn && request.getHeader(REQUEST_HEADER) != null) return true;
+    return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+}
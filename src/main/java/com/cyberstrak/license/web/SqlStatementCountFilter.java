@@ -0,0 +1,66 @@
+package com.cyberstrak.license.web;
+
+import com.cyberstrak.license.jdbc.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the SQL statements each HTTP request runs and records them in the {@code
+ * http.server.requests.sql.statements} summary, tagged like {@code http.server.requests}.
+ *
+ * <p>With {@code license.sql.statement-count-header=true} the count is also returned in the
+ * {@value #HEADER} response header. The header is set right before the response is committed,
+ * without buffering the body, so a streamed response such as {@code /dump_licenses} reports the
+ * statements run until its first bytes are sent.
+ */
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+  public static final String HEADER = "X-SQL-Statement-Count";
+  public static final String SUMMARY = "http.server.requests.sql.statements";
+
+  private final MeterRegistry meterRegistry;
+  private final boolean header;
+
+  public SqlStatementCountFilter(
+      MeterRegistry meterRegistry,
+      @Value("${license.sql.statement-count-header:false}") boolean header) {
+    this.meterRegistry = meterRegistry;
+    this.header = header;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    BeforeCommitResponseWrapper wrapped =
+        header
+            ? new BeforeCommitResponseWrapper(
+                response,
+                () -> response.setHeader(HEADER, Integer.toString(SqlStatementCounter.current())))
+            : null;
+    SqlStatementCounter.start();
+    try {
+      chain.doFilter(request, wrapped != null ? wrapped : response);
+      if (wrapped != null) wrapped.complete();
+    } finally {
+      int statements = SqlStatementCounter.stop();
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      DistributionSummary.builder(SUMMARY)
+          .description("SQL statements run per HTTP request")
+          .tags(
+              "method", request.getMethod(),
+              "uri", pattern != null ? pattern.toString() : "UNKNOWN")
+          .register(meterRegistry)
+          .record(statements);
+    }
+  }
+}
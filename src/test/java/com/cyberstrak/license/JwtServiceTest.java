@@ -0,0 +1,68 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cyberstrak.license.security.JwtService;
+import com.cyberstrak.license.security.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+public class JwtServiceTest {
+  private static final String SECRET = "testsecretthatisatleastthirtytwobytes!";
+
+  private MeterRegistry meterRegistry;
+  private JwtService jwtService;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    jwtService = new JwtService(SECRET, 3600, 100, meterRegistry);
+  }
+
+  @Test
+  void testVerifyReturnsSubjectAndRolesAndCachesTheResult() {
+    String token = jwtService.generateToken("alice", List.of(new SimpleGrantedAuthority("ADMIN")));
+
+    VerifiedToken first = jwtService.verify(token);
+    VerifiedToken second = jwtService.verify(token);
+
+    assertEquals("alice", first.username());
+    assertEquals(List.of("ADMIN"), first.roles());
+    assertSame(first, second);
+    assertEquals(1, meterRegistry.get("security.jwt.verification").timer().count());
+    assertEquals(
+        1,
+        meterRegistry
+            .get("cache.gets")
+            .tag("cache", "jwt.tokens")
+            .tag("result", "hit")
+            .functionCounter()
+            .count());
+  }
+
+  @Test
+  void testVerifyRejectsTokensSignedWithAnotherKey() {
+    JwtService other =
+        new JwtService("anothersecretthatisatleastthirtytwobytes", 3600, 100, meterRegistry);
+    String token = other.generateToken("mallory", List.of());
+
+    assertThrows(JwtException.class, () -> jwtService.verify(token));
+    assertThrows(JwtException.class, () -> jwtService.verify(token));
+  }
+
+  @Test
+  void testVerifyRejectsExpiredTokens() {
+    JwtService expiring = new JwtService(SECRET, -1, 100, meterRegistry);
+    String token = expiring.generateToken("bob", List.of());
+
+    assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+  }
+}
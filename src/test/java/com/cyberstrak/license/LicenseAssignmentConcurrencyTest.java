@@ -0,0 +1,208 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.BatchRequest;
+import com.cyberstrak.license.dto.BatchResponse;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.exception.ConflictException;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Races concurrent add_license calls for the same key and checks that exactly one entity wins, or
+ * for multi-seat licenses, that exactly as many entities win as there are seats. A batch that loses
+ * a license to add_license fails only that operation.
+ */
+@SpringBootTest(classes = LicenseManagerApplication.class)
+@ActiveProfiles("test")
+public class LicenseAssignmentConcurrencyTest {
+  private static final Logger logger =
+      LoggerFactory.getLogger(LicenseAssignmentConcurrencyTest.class);
+
+  private static final int ROUNDS = 20;
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private LicenseService licenseService;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 8, 64})
+  void testExactlyOneEntityWinsEachLicense(int callers) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    long calls = 0;
+    long started = System.nanoTime();
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        String key = "RACE_" + callers + "_" + round;
+        License license = new License();
+        license.setSerial(key);
+        license.setLicenseKey(key);
+        license.setProductId("PROD1");
+        license.setEnabled(true);
+        licenseRepository.save(license);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+          String entityId = "ENTITY_" + i;
+          results.add(
+              executor.submit(
+                  () -> {
+                    start.await();
+                    try {
+                      licenseService.addLicense(
+                          new AddLicenseRequest(
+                              new AddLicenseRequest.LicenseData(key, "PROD1"), entityId, null));
+                      return entityId;
+                    } catch (ConflictException e) {
+                      return null;
+                    }
+                  }));
+        }
+        start.countDown();
+
+        List<String> winners = new ArrayList<>();
+        for (Future<String> result : results) {
+          String winner = result.get(30, TimeUnit.SECONDS);
+          if (winner != null) winners.add(winner);
+        }
+        calls += callers;
+
+        if (winners.size() != 1) fail(key + " was assigned to " + winners);
+        assertEquals(
+            winners.get(0), licenseRepository.findById(key).orElseThrow().getEntityId());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    double seconds = (System.nanoTime() - started) / 1e9;
+    logger.info(
+        "{} concurrent callers: {} add_license calls in {} ms, {} calls/s",
+        callers,
+        calls,
+        Math.round(seconds * 1000),
+        Math.round(calls / seconds));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {8, 64})
+  void testConcurrentCallersClaimEachSeatOnce(int callers) throws Exception {
+    License license = new License();
+    license.setSerial("SEATS");
+    license.setLicenseKey("SEATS");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setNumberOfSeats(5);
+    licenseRepository.save(license);
+
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    int winners = 0;
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        String entityId = "ENTITY_" + i;
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  try {
+                    licenseService.addLicense(
+                        new AddLicenseRequest(
+                            new AddLicenseRequest.LicenseData("SEATS", "PROD1"), entityId, null));
+                    return true;
+                  } catch (ConflictException e) {
+                    return false;
+                  }
+                }));
+      }
+      start.countDown();
+      for (Future<Boolean> result : results) {
+        if (result.get(30, TimeUnit.SECONDS)) winners++;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(5, winners);
+    assertEquals(List.of(1, 2, 3, 4, 5), licenseRepository.findTakenSeats("SEATS"));
+  }
+
+  @Test
+  void testBatchLosesOnlyTheLicenseTakenByAddLicense() throws Exception {
+    for (String key : List.of("BATCH_1", "BATCH_2")) {
+      License license = new License();
+      license.setSerial(key);
+      license.setLicenseKey(key);
+      license.setProductId("PROD1");
+      license.setEnabled(true);
+      licenseRepository.save(license);
+    }
+    List<BatchRequest.Operation> operations = new ArrayList<>();
+    for (String key : List.of("BATCH_1", "BATCH_2")) {
+      operations.add(
+          new BatchRequest.Operation(
+              "add", new AddLicenseRequest.LicenseData(key, "PROD1"), "BATCH", null, null));
+    }
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      BatchResponse response =
+          transactionTemplate.execute(
+              status -> {
+                // the batch has read BATCH_1 as unassigned when add_license takes it
+                licenseRepository.findById("BATCH_1").orElseThrow();
+                try {
+                  executor
+                      .submit(
+                          () ->
+                              licenseService.addLicense(
+                                  new AddLicenseRequest(
+                                      new AddLicenseRequest.LicenseData("BATCH_1", "PROD1"),
+                                      "SINGLE",
+                                      null)))
+                      .get(30, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                  throw new IllegalStateException(e);
+                }
+                return licenseService.executeBatch(operations);
+              });
+
+      assertEquals(
+          List.of(409, 200),
+          response.results().stream().map(BatchResponse.Result::status).toList());
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals("SINGLE", licenseRepository.findById("BATCH_1").orElseThrow().getEntityId());
+    assertEquals("BATCH", licenseRepository.findById("BATCH_2").orElseThrow().getEntityId());
+  }
+}
@@ -0,0 +1,121 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.exception.BadRequestException;
+import com.cyberstrak.license.exception.ConflictException;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseCache;
+import com.cyberstrak.license.service.LicenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(
+    classes = LicenseManagerApplication.class,
+    properties = "license.cache.enabled=true")
+@ActiveProfiles("test")
+public class LicenseCacheTest {
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private LicenseService licenseService;
+
+  @Autowired private LicenseCache licenseCache;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+    licenseCache.clear();
+
+    License license = new License();
+    license.setSerial("1");
+    license.setLicenseKey("KEY1");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    licenseRepository.save(license);
+  }
+
+  @Test
+  void testRepeatedGetLicenseIsServedFromCache() {
+    double hitsBefore = cacheGets("hit");
+
+    licenseService.getLicense("KEY1", "PROD1");
+    licenseService.getLicense("KEY1", "PROD1");
+
+    assertEquals(hitsBefore + 1, cacheGets("hit"));
+  }
+
+  @Test
+  void testAddLicenseInvalidatesCachedEntry() {
+    LicenseDto before = licenseService.getLicense("KEY1", "PROD1");
+    assertNull(before.entityId());
+
+    licenseService.addLicense(
+        new AddLicenseRequest(new AddLicenseRequest.LicenseData("KEY1", "PROD1"), "ENTITY1", null));
+
+    assertEquals("ENTITY1", licenseService.getLicense("KEY1", "PROD1").entityId());
+  }
+
+  @Test
+  void testCachedLicenseIsRejectedOnceExpired() throws InterruptedException {
+    License license = licenseRepository.findById("1").orElseThrow();
+    license.setExpirationDate(LocalDateTime.now().plusSeconds(2));
+    licenseRepository.save(license);
+    licenseService.getLicense("KEY1", "PROD1");
+    double hitsBefore = cacheGets("hit");
+
+    Thread.sleep(2_100);
+
+    assertThrows(ConflictException.class, () -> licenseService.getLicense("KEY1", "PROD1"));
+    // judged on the cached copy, without reading the row again
+    assertEquals(hitsBefore + 1, cacheGets("hit"));
+  }
+
+  @Test
+  void testLicenseJsonIsSerializedOncePerVersion() {
+    byte[] first = licenseService.getLicenseJson("KEY1", "PROD1");
+    assertSame(first, licenseService.getLicenseJson("KEY1", "PROD1"));
+    assertFalse(new String(first, StandardCharsets.UTF_8).contains("\n"));
+
+    licenseService.addLicense(
+        new AddLicenseRequest(new AddLicenseRequest.LicenseData("KEY1", "PROD1"), "ENTITY1", null));
+
+    String json =
+        new String(licenseService.getLicenseJson("KEY1", "PROD1"), StandardCharsets.UTF_8);
+    assertTrue(json.contains("\"entityId\":\"ENTITY1\""), json);
+  }
+
+  @Test
+  void testEraseLicenseInvalidatesCachedEntry() {
+    licenseService.getLicense("KEY1", "PROD1");
+
+    licenseService.eraseLicense("KEY1");
+
+    assertThrows(BadRequestException.class, () -> licenseService.getLicense("KEY1", "PROD1"));
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "licenses")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
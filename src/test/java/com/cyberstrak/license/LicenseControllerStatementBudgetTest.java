@@ -0,0 +1,237 @@
+package com.cyberstrak.license;
+
+import static com.cyberstrak.license.SqlStatementBudget.atMost;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * SQL statement budgets of the LicenseController endpoints. The data set holds several licenses
+ * and an upgrade chain, so a statement per license or per chain link (N+1) exceeds the budget.
+ */
+@SpringBootTest(classes = LicenseManagerApplication.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class LicenseControllerStatementBudgetTest {
+  private static final int LICENSES = 10;
+
+  @Value("${issuer.id}")
+  private String ISSUER_ID;
+
+  @Value("${issuer.secret}")
+  private String ISSUER_SECRET;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+    List<License> licenses = new ArrayList<>();
+    for (int i = 0; i < LICENSES; i++) {
+      licenses.add(license("S" + i, "K" + i, i % 2 == 1 ? "ENTITY" + i : null));
+    }
+    // K0 <- UK1 <- UK2, with K0 and UK1 held by ENTITY0
+    licenses.get(0).setEntityId("ENTITY0");
+    License first = license("US1", "UK1", "ENTITY0");
+    first.setUpgrade(true);
+    first.setUpgradeFromKey("K0");
+    License second = license("US2", "UK2", null);
+    second.setUpgrade(true);
+    licenses.add(first);
+    licenses.add(second);
+    licenseRepository.saveAll(licenses);
+  }
+
+  @Test
+  void testInfo() throws Exception {
+    perform(get("/info"), 1);
+  }
+
+  @Test
+  void testCreateLicense() throws Exception {
+    perform(
+        post("/create_license")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(
+                """
+                {
+                  "license": { "key": "NEW", "aud": "PROD1" },
+                  "serial": "NEW_SERIAL",
+                  "numberOfSeats": 1
+                }
+                """),
+        2);
+  }
+
+  @Test
+  void testAddLicense() throws Exception {
+    perform(addLicense("K2", "ENTITY2", null), 2);
+  }
+
+  @Test
+  void testAddUpgradeLicense() throws Exception {
+    perform(addLicense("UK2", "ENTITY0", "UK1"), 2);
+  }
+
+  @Test
+  void testRemoveLicense() throws Exception {
+    perform(
+        post("/remove_license")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(
+                """
+                {
+                  "licenseCluster": {
+                    "licenses": [ { "id": "S0", "aud": "PROD1" }, { "id": "US1", "aud": "PROD1" } ]
+                  },
+                  "entityId": "ENTITY0"
+                }
+                """),
+        2);
+  }
+
+  @Test
+  void testGetLicense() throws Exception {
+    perform(get("/get_license").param("key", "K1").param("aud", "PROD1"), 1);
+  }
+
+  @Test
+  void testBatchLicenses() throws Exception {
+    // one query loads all licenses; each add is a conditional UPDATE plus a reload of the license,
+    // and the remove is written on commit
+    perform(
+        post("/batch_licenses")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(
+                """
+                {
+                  "operations": [
+                    { "op": "add", "license": { "key": "K2", "aud": "PROD1" }, "entityId": "E" },
+                    { "op": "add", "license": { "key": "K4", "aud": "PROD1" }, "entityId": "E" },
+                    { "op": "add", "license": { "key": "K6", "aud": "PROD1" }, "entityId": "E" },
+                    { "op": "get", "license": { "key": "K1", "aud": "PROD1" } },
+                    { "op": "get", "license": { "key": "K3", "aud": "PROD1" } },
+                    {
+                      "op": "remove",
+                      "licenseCluster": { "licenses": [ { "id": "S5", "aud": "PROD1" } ] },
+                      "entityId": "ENTITY5"
+                    }
+                  ]
+                }
+                """),
+        8);
+  }
+
+  @Test
+  void testEraseLicense() throws Exception {
+    perform(post("/erase_license").param("key", "K2"), 5);
+  }
+
+  @Test
+  void testDumpLicenses() throws Exception {
+    perform(get("/dump_licenses"), 1);
+  }
+
+  @Test
+  void testSearchLicenses() throws Exception {
+    perform(get("/api/licenses/search").param("aud", "PROD1"), 1);
+  }
+
+  @Test
+  void testGetLicenseById() throws Exception {
+    perform(get("/api/licenses/S1"), 1);
+  }
+
+  @Test
+  void testGetUpgradeFamily() throws Exception {
+    perform(get("/api/licenses/UK1/lineage"), 1);
+  }
+
+  @Test
+  void testGetEntityLicenses() throws Exception {
+    perform(get("/api/entities/ENTITY0/licenses"), 1);
+  }
+
+  @Test
+  void testReleaseEntity() throws Exception {
+    // read, free the seats, unassign the licenses
+    perform(delete("/api/entities/ENTITY0/licenses"), 3);
+  }
+
+  @Test
+  void testUpdateLicense() throws Exception {
+    perform(
+        put("/api/licenses/K2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(
+                """
+                { "key": "K2", "aud": "PROD1", "active": false, "expiration": null }
+                """),
+        3);
+  }
+
+  @Test
+  void testUpsertCreateLicense() throws Exception {
+    perform(
+        post("/api/licenses")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(
+                """
+                { "key": "NEW", "aud": "PROD1", "active": true, "expiration": null }
+                """),
+        2);
+  }
+
+  private void perform(MockHttpServletRequestBuilder request, int budget) throws Exception {
+    mockMvc
+        .perform(request.with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(atMost(budget));
+  }
+
+  private static MockHttpServletRequestBuilder addLicense(
+      String key, String entityId, String precondition) {
+    return post("/add_license")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(
+            """
+            {
+              "license": { "key": "%s", "aud": "PROD1" },
+              "entityId": "%s",
+              "precondition": %s
+            }
+            """
+                .formatted(
+                    key, entityId, precondition == null ? "null" : "\"" + precondition + "\""));
+  }
+
+  private static License license(String serial, String key, String entityId) {
+    License l = new License();
+    l.setSerial(serial);
+    l.setLicenseKey(key);
+    l.setProductId("PROD1");
+    l.setEnabled(true);
+    l.setEntityId(entityId);
+    return l;
+  }
+}
@@ -1,11 +1,15 @@
 package com.cyberstrak.license;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -22,6 +26,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @SpringBootTest(classes = LicenseManagerApplication.class)
 @ActiveProfiles("test")
@@ -183,6 +188,58 @@ public class LicenseControllerTest {
         .andExpect(status().isConflict());
   }
 
+  @Test
+  void testBatchLicensesEndpointReportsResultsPerOperation() throws Exception {
+    licenseRepository.saveAll(
+        List.of(
+            license("1", "KEY1", "PROD1", null),
+            license("2", "KEY2", "PROD1", "OTHER"),
+            license("3", "KEY3", "PROD1", "ENTITY3")));
+
+    String json =
+        """
+        {
+          "operations": [
+            { "op": "add", "license": { "key": "KEY1", "aud": "PROD1" }, "entityId": "ENTITY1" },
+            { "op": "add", "license": { "key": "KEY2", "aud": "PROD1" }, "entityId": "ENTITY1" },
+            { "op": "get", "license": { "key": "KEY1", "aud": "PROD1" } },
+            {
+              "op": "remove",
+              "licenseCluster": { "licenses": [ { "id": "3", "aud": "PROD1" } ] },
+              "entityId": "ENTITY3"
+            },
+            { "op": "get", "license": { "key": "UNKNOWN", "aud": "PROD1" } },
+            { "op": "rename" },
+            { "license": { "key": "KEY1", "aud": "PROD1" } }
+          ]
+        }
+        """;
+
+    mockMvc
+        .perform(
+            post("/batch_licenses")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.results.length()").value(7))
+        .andExpect(jsonPath("$.results[0].status").value(200))
+        .andExpect(jsonPath("$.results[0].licenses[0].entityId").value("ENTITY1"))
+        .andExpect(jsonPath("$.results[1].status").value(409))
+        .andExpect(jsonPath("$.results[1].error").exists())
+        .andExpect(jsonPath("$.results[2].status").value(200))
+        .andExpect(jsonPath("$.results[2].licenses[0].entityId").value("ENTITY1"))
+        .andExpect(jsonPath("$.results[3].status").value(200))
+        .andExpect(jsonPath("$.results[4].status").value(400))
+        .andExpect(jsonPath("$.results[5].status").value(400))
+        .andExpect(jsonPath("$.results[6].status").value(400))
+        .andExpect(jsonPath("$.results[6].error").value("op is required."));
+
+    assertEquals("ENTITY1", licenseRepository.findById("1").orElseThrow().getEntityId());
+    assertEquals("OTHER", licenseRepository.findById("2").orElseThrow().getEntityId());
+    assertNull(licenseRepository.findById("3").orElseThrow().getEntityId());
+  }
+
   @Test
   void testGetLicenseEndpoint() throws Exception {
     License license = new License();
@@ -199,8 +256,12 @@ public class LicenseControllerTest {
                 .param("key", "KEY1")
                 .param("aud", "PROD1"))
         .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
         .andExpect(jsonPath("$.id").value("1"))
-        .andExpect(jsonPath("$.key").value("KEY1"));
+        .andExpect(jsonPath("$.key").value("KEY1"))
+        .andExpect(jsonPath("$.editions.en").value("Full Edition"))
+        // the cached callback body is compact, unlike the indented UI responses
+        .andExpect(content().string(Matchers.not(Matchers.containsString("\n"))));
   }
 
   @Test
@@ -214,6 +275,34 @@ public class LicenseControllerTest {
         .andExpect(status().isBadRequest());
   }
 
+  @Test
+  void testCallbackEndpointsAuthenticateStatelessly() throws Exception {
+    licenseRepository.save(license("1", "KEY1", "PROD1", null));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                get("/get_license")
+                    .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                    .param("key", "KEY1")
+                    .param("aud", "PROD1"))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertNull(result.getRequest().getSession(false));
+
+    mockMvc
+        .perform(
+            get("/get_license")
+                .with(httpBasic(ISSUER_ID, "wrong"))
+                .param("key", "KEY1")
+                .param("aud", "PROD1"))
+        .andExpect(status().isUnauthorized())
+        .andExpect(header().exists("WWW-Authenticate"));
+    mockMvc
+        .perform(get("/get_license").param("key", "KEY1").param("aud", "PROD1"))
+        .andExpect(status().isUnauthorized());
+  }
+
   @Test
   void testDumpLicensesEndpoint() throws Exception {
     License l1 = new License();
@@ -237,6 +326,153 @@ public class LicenseControllerTest {
         .andExpect(jsonPath("$[1].key").value("KEY2"));
   }
 
+  @Test
+  void testDumpLicensesEndpointStreamsNdjsonFromCursor() throws Exception {
+    for (int i = 1; i <= 3; i++) {
+      License l = new License();
+      l.setSerial(String.valueOf(i));
+      l.setLicenseKey("KEY" + i);
+      l.setProductId("PROD1");
+      l.setEnabled(true);
+      licenseRepository.save(l);
+    }
+
+    String body =
+        mockMvc
+            .perform(
+                get("/dump_licenses")
+                    .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                    .accept("application/x-ndjson")
+                    .param("cursor", "1")
+                    .param("limit", "1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertEquals(1, lines.length);
+    assertTrue(lines[0].contains("\"key\":\"KEY2\""));
+  }
+
+  @Test
+  void testEntityLicensesEndpoints() throws Exception {
+    String entityId = "595959595959595-|-User";
+    License held = new License();
+    held.setSerial("1");
+    held.setLicenseKey("KEY1");
+    held.setProductId("PROD1");
+    held.setEnabled(true);
+    held.setEntityId(entityId);
+
+    License free = new License();
+    free.setSerial("2");
+    free.setLicenseKey("KEY2");
+    free.setProductId("PROD1");
+    free.setEnabled(true);
+
+    licenseRepository.saveAll(List.of(held, free));
+
+    mockMvc
+        .perform(
+            get("/api/entities/{entityId}/licenses", entityId)
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].key").value("KEY1"))
+        .andExpect(jsonPath("$[0].entityId").value(entityId));
+
+    mockMvc
+        .perform(
+            delete("/api/entities/{entityId}/licenses", entityId)
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].key").value("KEY1"))
+        .andExpect(jsonPath("$[0].entityId").doesNotExist());
+
+    assertNull(licenseRepository.findById("1").orElseThrow().getEntityId());
+  }
+
+  @Test
+  void testImportLicensesEndpoint() throws Exception {
+    String csv =
+        """
+        serial,key,aud,expiration,numberOfSeats,email,comment
+        1,KEY1,PROD1,,,a@example.com,"first, imported"
+        2,KEY2,PROD1,4102444800,3,,
+        3,KEY1,PROD1,,,,
+        """;
+
+    mockMvc
+        .perform(post("/api/licenses/import").contentType("text/csv").content(csv))
+        .andExpect(status().isUnauthorized());
+
+    mockMvc
+        .perform(
+            post("/api/licenses/import")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType("text/csv")
+                .content(csv))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.rows").value(3))
+        .andExpect(jsonPath("$.imported").value(2))
+        .andExpect(jsonPath("$.failed").value(1))
+        .andExpect(jsonPath("$.errors[0].row").value(3))
+        .andExpect(jsonPath("$.errors[0].serial").value("3"));
+
+    assertEquals("first, imported", licenseRepository.findById("1").orElseThrow().getComment());
+    assertEquals(3, licenseRepository.findById("2").orElseThrow().getNumberOfSeats());
+
+    mockMvc
+        .perform(
+            post("/api/licenses/import")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType("application/x-ndjson")
+                .content(
+                    "{\"license\":{\"key\":\"KEY4\",\"aud\":\"PROD1\"},\"serial\":\"4\","
+                        + "\"numberOfSeats\":1}\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.imported").value(1));
+
+    mockMvc
+        .perform(
+            post("/api/licenses/import")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType("text/csv")
+                .content("serial,key,product\n5,KEY5,PROD1\n"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testSearchLicensesEndpoint() throws Exception {
+    License l1 = new License();
+    l1.setSerial("1");
+    l1.setLicenseKey("ABC-1");
+    l1.setProductId("PROD1");
+    l1.setEnabled(true);
+
+    License l2 = new License();
+    l2.setSerial("2");
+    l2.setLicenseKey("XYZ-2");
+    l2.setProductId("PROD1");
+    l2.setEnabled(true);
+
+    licenseRepository.saveAll(List.of(l1, l2));
+
+    mockMvc
+        .perform(
+            get("/api/licenses/search")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .param("key", "ABC")
+                .param("productId", "PROD1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.total").value(1))
+        .andExpect(jsonPath("$.licenses[0].key").value("ABC-1"))
+        .andExpect(content().string(Matchers.containsString("\n")));
+  }
+
   @Test
   void testCreateLicenseEndpoint_acceptsNullExpiration() throws Exception {
     String json =
@@ -270,4 +506,125 @@ public class LicenseControllerTest {
     assertNull(saved.getExpirationDate());
   }
 
+  @Test
+  void testCreateLicenseEndpointAnswersConflictForTakenSerial() throws Exception {
+    String json =
+        """
+        {
+          "license": { "key": "KEY_TAKEN", "aud": "PROD1" },
+          "serial": "SERIAL_TAKEN",
+          "numberOfSeats": 1
+        }
+        """;
+    mockMvc
+        .perform(
+            post("/create_license")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+        .andExpect(status().isOk());
+
+    mockMvc
+        .perform(
+            post("/create_license")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+        .andExpect(status().isConflict());
+
+    mockMvc
+        .perform(
+            post("/api/licenses")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    """
+                    { "key": "KEY_TAKEN", "aud": "PROD1", "active": true }
+                    """))
+        .andExpect(status().isConflict());
+  }
+
+  @Test
+  void testPrometheusEndpointPublishesOperationHistogram() throws Exception {
+    mockMvc.perform(
+        get("/get_license")
+            .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+            .param("key", "NOPE")
+            .param("aud", "PROD1"));
+
+    mockMvc
+        .perform(get("/actuator/prometheus").with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(
+            content().string(Matchers.containsString("license_operations_seconds_bucket{")));
+  }
+
+  @Test
+  void testServerTimingHeaderOnRequest() throws Exception {
+    licenseRepository.save(license("1", "KEY1", "PROD1", null));
+
+    mockMvc
+        .perform(
+            get("/get_license")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .param("key", "KEY1")
+                .param("aud", "PROD1"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Server-Timing"));
+
+    mockMvc
+        .perform(
+            get("/get_license")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .header("X-Server-Timing", "1")
+                .param("key", "KEY1")
+                .param("aud", "PROD1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.key").value("KEY1"))
+        .andExpect(
+            header()
+                .string(
+                    "Server-Timing",
+                    Matchers.matchesRegex(
+                        "auth;dur=[0-9.]+, db;dur=[0-9.]+, map;dur=[0-9.]+,"
+                            + " serialize;dur=[0-9.]+, total;dur=[0-9.]+")));
+  }
+
+  @Test
+  void testUpgradeFamilyEndpointFollowsUpgradeLinkedAfterCreate() throws Exception {
+    for (String name : List.of("ORIG", "UPG")) {
+      mockMvc
+          .perform(
+              post("/create_license")
+                  .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(
+                      "{\"license\":{\"key\":\"" + name + "_KEY\",\"aud\":\"PROD1\"},"
+                          + "\"serial\":\"" + name + "_ID\",\"numberOfSeats\":1}"))
+          .andExpect(status().isOk());
+    }
+    // linked only after both were created
+    License upgrade = licenseRepository.findById("UPG_ID").orElseThrow();
+    upgrade.setUpgrade(true);
+    upgrade.setUpgradeFromKey("ORIG_KEY");
+    licenseRepository.save(upgrade);
+
+    for (String key : List.of("ORIG_KEY", "UPG_KEY")) {
+      mockMvc
+          .perform(
+              get("/api/licenses/" + key + "/lineage").with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$[*].id").value(Matchers.contains("ORIG_ID", "UPG_ID")));
+    }
+  }
+
+  private static License license(String serial, String key, String productId, String entityId) {
+    License license = new License();
+    license.setSerial(serial);
+    license.setLicenseKey(key);
+    license.setProductId(productId);
+    license.setEnabled(true);
+    license.setEntityId(entityId);
+    return license;
+  }
 }
@@ -0,0 +1,125 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.BatchRequest;
+import com.cyberstrak.license.dto.BatchResponse;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.exception.ConflictException;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseExpirySweeper;
+import com.cyberstrak.license.service.LicenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(
+    classes = LicenseManagerApplication.class,
+    properties = "license.expiry.sweep.batch-size=2")
+@ActiveProfiles("test")
+public class LicenseExpiryTest {
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private LicenseService licenseService;
+
+  @Autowired private LicenseExpirySweeper sweeper;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+  }
+
+  @Test
+  void testExpiredLicenseIsRejectedOnCallbacks() {
+    licenseRepository.save(license("1", "EXPIRED", LocalDateTime.now().minusDays(1), true));
+    licenseRepository.save(license("2", "VALID", LocalDateTime.now().plusDays(1), true));
+
+    ConflictException e =
+        assertThrows(ConflictException.class, () -> licenseService.addLicense(add("EXPIRED")));
+    assertTrue(e.getMessage().contains("has expired"));
+    assertThrows(ConflictException.class, () -> licenseService.getLicense("EXPIRED", "PROD1"));
+
+    assertEquals("ENTITY1", licenseService.addLicense(add("VALID")).get(0).entityId());
+    assertEquals("VALID", licenseService.getLicense("VALID", "PROD1").key());
+
+    List<BatchResponse.Result> results =
+        licenseService.executeBatch(List.of(get("EXPIRED"), get("VALID"))).results();
+    assertEquals(409, results.get(0).status());
+    assertTrue(results.get(0).error().contains("has expired"));
+    assertEquals(200, results.get(1).status());
+  }
+
+  @Test
+  void testSweepDisablesExpiredLicensesInBatches() {
+    // whole seconds, so the checkpoint gauge reads back exactly
+    LocalDateTime yesterday = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS);
+    for (int i = 1; i <= 5; i++) {
+      licenseRepository.save(license("E" + i, "EXPIRED" + i, yesterday.plusMinutes(i), true));
+    }
+    licenseRepository.save(license("F1", "FUTURE", LocalDateTime.now().plusDays(1), true));
+    licenseRepository.save(license("N1", "NEVER", null, true));
+    double batchesBefore = meterRegistry.get("license.expiry.batches").counter().count();
+    double disabledBefore = meterRegistry.get("license.expiry.disabled").counter().count();
+
+    assertEquals(5, sweeper.sweep());
+
+    for (int i = 1; i <= 5; i++) {
+      assertFalse(licenseRepository.findById("E" + i).orElseThrow().isEnabled());
+    }
+    assertTrue(licenseRepository.findById("F1").orElseThrow().isEnabled());
+    assertTrue(licenseRepository.findById("N1").orElseThrow().isEnabled());
+    assertEquals(batchesBefore + 3, meterRegistry.get("license.expiry.batches").counter().count());
+    assertEquals(
+        disabledBefore + 5, meterRegistry.get("license.expiry.disabled").counter().count());
+    assertEquals(
+        yesterday.plusMinutes(5).atZone(ZoneId.systemDefault()).toEpochSecond(),
+        meterRegistry.get("license.expiry.checkpoint").gauge().value());
+
+    // licenses that turn enabled and expired behind the last license swept are still disabled
+    License reenabled = licenseRepository.findById("E1").orElseThrow();
+    reenabled.setEnabled(true);
+    licenseRepository.save(reenabled);
+    licenseRepository.save(license("E0", "EXPIRED0", yesterday.minusDays(1), true));
+    licenseRepository.save(license("E6", "EXPIRED6", LocalDateTime.now().minusSeconds(1), true));
+
+    assertEquals(3, sweeper.sweep());
+    assertFalse(licenseRepository.findById("E0").orElseThrow().isEnabled());
+    assertFalse(licenseRepository.findById("E1").orElseThrow().isEnabled());
+    assertFalse(licenseRepository.findById("E6").orElseThrow().isEnabled());
+    assertEquals(0, sweeper.sweep());
+  }
+
+  private static BatchRequest.Operation get(String key) {
+    return new BatchRequest.Operation(
+        "get", new AddLicenseRequest.LicenseData(key, "PROD1"), null, null, null);
+  }
+
+  private static AddLicenseRequest add(String key) {
+    return new AddLicenseRequest(new AddLicenseRequest.LicenseData(key, "PROD1"), "ENTITY1", null);
+  }
+
+  private static License license(
+      String serial, String key, LocalDateTime expirationDate, boolean enabled) {
+    License license = new License();
+    license.setSerial(serial);
+    license.setLicenseKey(key);
+    license.setProductId("PROD1");
+    license.setEnabled(enabled);
+    license.setExpirationDate(expirationDate);
+    return license;
+  }
+}
@@ -0,0 +1,196 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cyberstrak.license.dto.ImportReport;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.exception.BadRequestException;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseImporter;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(
+    classes = LicenseManagerApplication.class,
+    properties = {"license.import.batch-size=2", "license.import.max-errors=5"})
+@ActiveProfiles("test")
+public class LicenseImporterTest {
+
+  @Autowired private LicenseImporter importer;
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+    jdbcTemplate.update("DELETE FROM license_lineage");
+  }
+
+  @Test
+  void testCsvImportRejectsInvalidAndDuplicateRows() {
+    License existing = new License();
+    existing.setSerial("S0");
+    existing.setLicenseKey("K0");
+    existing.setProductId("PROD1");
+    existing.setEnabled(true);
+    licenseRepository.save(existing);
+
+    String csv =
+        """
+        Serial,Key,Aud,Expiration,NumberOfSeats,Email,Comment
+        S1,K1,PROD1,4102444800,,a@example.com,"multi-line
+        ""quoted"" comment"
+        S2,K2,PROD1,,5,,
+
+        S1,K3,PROD1,,,,
+        S0,K4,PROD1,,,,
+        S5,K0,PROD1,,,,
+        S6,K6,PROD1,,11,not-an-email,
+        S7,K7,PROD1,tomorrow,,,
+        S8,K8
+        S9,K9,PROD1,,,,
+        """;
+    List<ImportReport> progress = new ArrayList<>();
+    ImportReport report =
+        importer.importLicenses(stream(csv), LicenseImporter.Format.CSV, progress::add);
+
+    assertEquals(9, report.rows());
+    assertEquals(3, report.imported());
+    assertEquals(6, report.failed());
+    // only the first max-errors rows are listed, in the order they were rejected
+    assertEquals(5, report.errors().size());
+    Map<Long, String> errors =
+        report.errors().stream()
+            .collect(Collectors.toMap(ImportReport.RowError::row, ImportReport.RowError::message));
+    assertEquals("Duplicate serial 'S1' in the import.", errors.get(3L));
+    assertEquals("The license id 'S0' already exists.", errors.get(4L));
+    assertEquals("The license key 'K0' already exists.", errors.get(5L));
+    assertEquals(
+        "license.email must be a well-formed email address; numberOfSeats must be less than or"
+            + " equal to 10",
+        errors.get(6L));
+    assertEquals("expiration and numberOfSeats must be numbers.", errors.get(7L));
+
+    License s1 = licenseRepository.findById("S1").orElseThrow();
+    assertEquals("multi-line\n\"quoted\" comment", s1.getComment());
+    assertEquals("a@example.com", s1.getEmail());
+    assertEquals(1, s1.getNumberOfSeats());
+    assertTrue(s1.isEnabled());
+    assertEquals(
+        LocalDateTime.ofInstant(Instant.ofEpochSecond(4102444800L), ZoneId.systemDefault()),
+        s1.getExpirationDate());
+    assertEquals(5, licenseRepository.findById("S2").orElseThrow().getNumberOfSeats());
+    assertNull(licenseRepository.findById("S2").orElseThrow().getExpirationDate());
+    assertTrue(licenseRepository.findById("S9").isPresent());
+    assertFalse(licenseRepository.findById("S5").isPresent());
+    assertEquals("PROD1", licenseRepository.findById("S0").orElseThrow().getProductId());
+
+    // every license has its own lineage row, whether imported or saved through JPA
+    assertEquals(
+        List.of("S0", "S1", "S2", "S9"),
+        jdbcTemplate.queryForList(
+            "SELECT descendant_serial FROM license_lineage"
+                + " WHERE ancestor_serial = descendant_serial AND depth = 0"
+                + " ORDER BY descendant_serial",
+            String.class));
+    // batches of two valid rows: (S1, S2), (S0, S5) rejected by the database check, (S9)
+    assertEquals(3, progress.size());
+    assertEquals(report.imported(), progress.get(progress.size() - 1).imported());
+  }
+
+  @Test
+  void testNdjsonImportReportsMalformedAndExistingRows() {
+    String ndjson =
+        """
+        {"license":{"key":"K1","aud":"PROD1","comment":"first"},"serial":"S1","numberOfSeats":1}
+        {"license":{"key":"K2","aud":"PROD1"},"serial":"S2","numberOfSeats":2,"expiration":4102444800}
+        {"serial":"S3","numberOfSeats":1}
+        {"license":{"key":"K4"},"serial":"S4","numberOfSeats":1}
+        not json
+
+        """;
+    ImportReport first =
+        importer.importLicenses(stream(ndjson), LicenseImporter.Format.NDJSON, p -> {});
+
+    assertEquals(5, first.rows());
+    assertEquals(2, first.imported());
+    assertEquals(3, first.failed());
+    assertEquals("license must not be null", first.errors().get(0).message());
+    assertEquals("license.aud must not be null", first.errors().get(1).message());
+    assertTrue(first.errors().get(2).message().startsWith("Malformed JSON"));
+    assertEquals("first", licenseRepository.findById("S1").orElseThrow().getComment());
+
+    // importing the same file again imports nothing
+    ImportReport second =
+        importer.importLicenses(stream(ndjson), LicenseImporter.Format.NDJSON, p -> {});
+    assertEquals(0, second.imported());
+    assertEquals(5, second.failed());
+    assertEquals("The license id 'S1' already exists.", second.errors().get(0).message());
+    assertEquals(2, licenseRepository.count());
+  }
+
+  @Test
+  void testRejectedBatchIsRetriedRowByRow() {
+    String csv =
+        "serial,key,aud\n"
+            + "S1,K1,PROD1\n"
+            // longer than the product_id column, which the request does not limit
+            + "S2,K2,"
+            + "P".repeat(300)
+            + "\n"
+            + "s1,K3,PROD1\n"
+            + "S4,k1,PROD1\n"
+            + "S5,K5,PROD1\n";
+    ImportReport report = importer.importLicenses(stream(csv), LicenseImporter.Format.CSV, p -> {});
+
+    assertEquals(4, report.imported());
+    assertEquals(1, report.failed());
+    // the other row of the rolled back batch is imported on its own
+    assertTrue(licenseRepository.findById("S1").isPresent());
+    assertTrue(licenseRepository.findById("S5").isPresent());
+    assertEquals(2L, report.errors().get(0).row());
+    assertTrue(report.errors().get(0).message().startsWith("Rejected by the database: "));
+    // the database decides whether case variants collide; H2 compares case-sensitively, as
+    // create_license does on it
+    assertTrue(licenseRepository.findById("s1").isPresent());
+    assertTrue(licenseRepository.findById("S4").isPresent());
+  }
+
+  @Test
+  void testCsvHeaderIsValidated() {
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            importer.importLicenses(
+                stream("serial,key,product\nS1,K1,PROD1\n"), LicenseImporter.Format.CSV, p -> {}));
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            importer.importLicenses(
+                stream("serial,key\nS1,K1\n"), LicenseImporter.Format.CSV, p -> {}));
+    assertEquals(0, licenseRepository.count());
+  }
+
+  private static ByteArrayInputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
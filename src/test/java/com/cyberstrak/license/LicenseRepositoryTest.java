@@ -7,6 +7,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.cyberstrak.license.entity.License;
 import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.repository.LicenseView;
+import com.cyberstrak.license.repository.UpgradeChain;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,6 +44,44 @@ public class LicenseRepositoryTest {
     assertEquals("PROD1", found.get().getProductId());
   }
 
+  @Test
+  void testFindAllViewsSelectsLicenseColumns() {
+    License license = new License();
+    license.setSerial("V1");
+    license.setLicenseKey("VIEW_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setEntityId("ENTITY1");
+    license.setNumberOfSeats(3);
+    license.setEmail("view@example.org");
+    licenseRepository.save(license);
+
+    assertEquals(
+        List.of(
+            new LicenseView(
+                "V1", "VIEW_KEY", "PROD1", "ENTITY1", true, null, 3, "view@example.org", null)),
+        licenseRepository.findAllViews());
+  }
+
+  @Test
+  void testFindSingleViews() {
+    License license = new License();
+    license.setSerial("V2");
+    license.setLicenseKey("VIEW_KEY_2");
+    license.setProductId("PROD1");
+    license.setEnabled(false);
+    licenseRepository.save(license);
+    LicenseView view =
+        new LicenseView("V2", "VIEW_KEY_2", "PROD1", null, false, null, 1, null, null);
+
+    assertEquals(Optional.of(view), licenseRepository.findViewById("V2"));
+    assertEquals(
+        Optional.of(view),
+        licenseRepository.findViewByLicenseKeyAndProductId("VIEW_KEY_2", "PROD1"));
+    assertFalse(
+        licenseRepository.findViewByLicenseKeyAndProductId("VIEW_KEY_2", "PROD2").isPresent());
+  }
+
   @Test
   void testFindByKeyReturnsLicense() {
     License license = new License();
@@ -95,4 +136,127 @@ public class LicenseRepositoryTest {
     licenseRepository.deleteById("789");
     assertFalse(licenseRepository.findById("789").isPresent());
   }
+
+  @Test
+  void testFindUpgradeChainFollowsUpgradeFromKey() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+
+    UpgradeChain chain = licenseRepository.findUpgradeChain("K3", 10);
+
+    assertEquals(List.of("S3", "S2", "S1"), serials(chain));
+    assertFalse(chain.cyclic());
+    assertFalse(chain.truncated());
+  }
+
+  @Test
+  void testFindUpgradeChainStopsAtCycle() {
+    licenseRepository.save(chainLink("S1", "K1", "K3"));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+
+    UpgradeChain chain = licenseRepository.findUpgradeChain("K3", 10);
+
+    assertEquals(List.of("S3", "S2", "S1"), serials(chain));
+    assertTrue(chain.cyclic());
+  }
+
+  @Test
+  void testFindUpgradeChainEnforcesDepthLimit() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+
+    UpgradeChain chain = licenseRepository.findUpgradeChain("K3", 2);
+
+    assertEquals(List.of("S3", "S2"), serials(chain));
+    assertTrue(chain.truncated());
+  }
+
+  @Test
+  void testLineageFollowsUpgradeLinkChangedAfterSave() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+    assertEquals(List.of("S1", "S2", "S3"), family("K3"));
+
+    License s2 = licenseRepository.findById("S2").orElseThrow();
+    s2.setUpgradeFromKey(null);
+    licenseRepository.save(s2);
+
+    assertEquals(List.of("S1"), family("K1"));
+    assertEquals(List.of("S2", "S3"), family("K3"));
+  }
+
+  @Test
+  void testLineageAdoptsUpgradesSavedBeforeTheirPredecessor() {
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S1", "K1", null));
+
+    assertEquals(List.of("S1", "S2", "S3"), family("K3"));
+    assertEquals(List.of("S3", "S2", "S1"), serials(licenseRepository.findLineageByKey("K3")));
+  }
+
+  @Test
+  void testLineageFollowsKeyChange() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K9"));
+
+    License s1 = licenseRepository.findById("S1").orElseThrow();
+    s1.setLicenseKey("K9");
+    licenseRepository.save(s1);
+
+    assertEquals(List.of("S2"), family("K2"));
+    assertEquals(List.of("S1", "S3"), family("K3"));
+  }
+
+  @Test
+  void testLineageRecordsNoCycle() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+
+    License s1 = licenseRepository.findById("S1").orElseThrow();
+    s1.setUpgradeFromKey("K2");
+    licenseRepository.save(s1);
+
+    assertEquals(List.of("S1", "S2"), family("K2"));
+  }
+
+  @Test
+  void testDeletedLicenseLeavesItsUpgradesAsOriginals() {
+    licenseRepository.save(chainLink("S1", "K1", null));
+    licenseRepository.save(chainLink("S2", "K2", "K1"));
+    licenseRepository.save(chainLink("S3", "K3", "K2"));
+
+    licenseRepository.deleteById("S2");
+
+    assertEquals(List.of("S1"), family("K1"));
+    assertEquals(List.of("S3"), family("K3"));
+  }
+
+  private static License chainLink(String serial, String key, String upgradeFromKey) {
+    License license = new License();
+    license.setSerial(serial);
+    license.setLicenseKey(key);
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setUpgrade(upgradeFromKey != null);
+    license.setUpgradeFromKey(upgradeFromKey);
+    return license;
+  }
+
+  private static List<String> serials(UpgradeChain chain) {
+    return serials(chain.licenses());
+  }
+
+  private static List<String> serials(List<License> licenses) {
+    return licenses.stream().map(License::getSerial).toList();
+  }
+
+  private List<String> family(String key) {
+    return serials(licenseRepository.findUpgradeFamily(key));
+  }
 }
@@ -8,26 +8,38 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.BatchRequest;
 import com.cyberstrak.license.dto.CreateLicenseRequest;
 import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.dto.LicensePage;
+import com.cyberstrak.license.dto.LicenseSearchRequest;
 import com.cyberstrak.license.dto.LicenseUpsertRequest;
+import com.cyberstrak.license.dto.RemoveLicenseRequest;
 import com.cyberstrak.license.entity.License;
 import com.cyberstrak.license.exception.BadRequestException;
 import com.cyberstrak.license.exception.ConflictException;
 import com.cyberstrak.license.exception.PreconditionFailedException;
 import com.cyberstrak.license.exception.PreconditionRequiredException;
 import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseLineageBackfill;
+import com.cyberstrak.license.service.LicenseMetrics;
 import com.cyberstrak.license.service.LicenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest(classes = LicenseManagerApplication.class)
@@ -37,6 +49,12 @@ public class LicenseServiceTest {
 
   @Autowired private LicenseService licenseService;
 
+  @Autowired private LicenseLineageBackfill lineageBackfill;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private MeterRegistry meterRegistry;
+
   @Value("${issuer.id}")
   private String ISSUER_ID;
 
@@ -108,6 +126,78 @@ public class LicenseServiceTest {
     assertEquals(localDateTime, created.getExpirationDate());
   }
 
+  @Test
+  void testCreateLicenseRejectsTakenSerialOrKey() {
+    licenseService.createLicense(
+        new CreateLicenseRequest(
+            new CreateLicenseRequest.LicenseData("KEY_43", "PROD_43", null, null),
+            "SERIAL_43",
+            null,
+            1));
+
+    ConflictException serial =
+        assertThrows(
+            ConflictException.class,
+            () ->
+                licenseService.createLicense(
+                    new CreateLicenseRequest(
+                        new CreateLicenseRequest.LicenseData("OTHER_KEY", "PROD_43", null, null),
+                        "SERIAL_43",
+                        null,
+                        1)));
+    assertEquals(
+        "The license id 'SERIAL_43' or key 'OTHER_KEY' already exists.", serial.getMessage());
+    assertThrows(
+        ConflictException.class,
+        () ->
+            licenseService.createLicense(
+                new CreateLicenseRequest(
+                    new CreateLicenseRequest.LicenseData("KEY_43", "PROD_43", null, null),
+                    "OTHER_SERIAL",
+                    null,
+                    1)));
+
+    assertEquals("KEY_43", licenseRepository.findById("SERIAL_43").orElseThrow().getLicenseKey());
+    assertFalse(licenseRepository.existsById("OTHER_SERIAL"));
+  }
+
+  @Test
+  void testOnlyDuplicateKeysAreReportedAsConflicts() {
+    licenseService.createLicense(
+        new CreateLicenseRequest(
+            new CreateLicenseRequest.LicenseData("KEY_44", "PROD_44", null, null),
+            "SERIAL_44",
+            null,
+            1));
+    licenseService.createLicense(
+        new CreateLicenseRequest(
+            new CreateLicenseRequest.LicenseData("KEY_45", "PROD_44", null, null),
+            "SERIAL_45",
+            null,
+            1));
+
+    // a comment longer than its column is no duplicate
+    DataIntegrityViolationException tooLong =
+        assertThrows(
+            DataIntegrityViolationException.class,
+            () ->
+                licenseService.createLicense(
+                    new CreateLicenseRequest(
+                        new CreateLicenseRequest.LicenseData(
+                            "KEY_46", "PROD_44", null, "x".repeat(2000)),
+                        "SERIAL_46",
+                        null,
+                        1)));
+    assertFalse(tooLong instanceof DuplicateKeyException);
+
+    assertThrows(
+        ConflictException.class,
+        () ->
+            licenseService.updateLicense(
+                "KEY_45", new LicenseUpsertRequest("KEY_44", "PROD_44", true, null)));
+    assertEquals("KEY_45", licenseRepository.findById("SERIAL_45").orElseThrow().getLicenseKey());
+  }
+
   @Test
   void testAddLicenseValidLicense() {
     License license = new License();
@@ -182,6 +272,65 @@ public class LicenseServiceTest {
     assertEquals(2, dump.size());
   }
 
+  @Test
+  void testStreamLicensesResumesAfterCursor() {
+    for (int i = 1; i <= 5; i++) {
+      License l = new License();
+      l.setSerial("S" + i);
+      l.setLicenseKey("KEY" + i);
+      l.setProductId("PROD1");
+      l.setEnabled(true);
+      licenseRepository.save(l);
+    }
+
+    List<String> ids = new ArrayList<>();
+    long count = licenseService.streamLicenses("S2", 2, dto -> ids.add(dto.id()));
+
+    assertEquals(2, count);
+    assertEquals(List.of("S3", "S4"), ids);
+
+    ids.clear();
+    licenseService.streamLicenses(null, 0, dto -> ids.add(dto.id()));
+    assertEquals(List.of("S1", "S2", "S3", "S4", "S5"), ids);
+  }
+
+  @Test
+  void testSearchLicensesFiltersSortsAndPagesInDatabase() {
+    for (int i = 1; i <= 5; i++) {
+      License l = new License();
+      l.setSerial("S" + i);
+      l.setLicenseKey((i % 2 == 0 ? "EVEN-" : "ODD-") + i);
+      l.setProductId("PROD1");
+      l.setEnabled(i != 5);
+      l.setExpirationDate(LocalDateTime.of(2030, 1, i, 0, 0));
+      licenseRepository.save(l);
+    }
+
+    LicensePage odd =
+        licenseService.searchLicenses(
+            new LicenseSearchRequest("ODD-", "PROD1", null, true, null, null), 0, 1, "key,desc");
+
+    assertEquals(2, odd.total());
+    assertEquals(1, odd.licenses().size());
+    assertEquals("ODD-3", odd.licenses().get(0).key());
+
+    long from = LocalDateTime.of(2030, 1, 2, 0, 0).atZone(ZoneId.systemDefault()).toEpochSecond();
+    long to = LocalDateTime.of(2030, 1, 4, 0, 0).atZone(ZoneId.systemDefault()).toEpochSecond();
+    LicensePage range =
+        licenseService.searchLicenses(
+            new LicenseSearchRequest(null, null, null, null, from, to), 0, 10, null);
+
+    assertEquals(List.of("S2", "S3", "S4"), range.licenses().stream().map(LicenseDto::id).toList());
+  }
+
+  @Test
+  void testSearchLicensesRejectsUnknownSortProperty() {
+    var criteria = new LicenseSearchRequest(null, null, null, null, null, null);
+    assertThrows(
+        BadRequestException.class,
+        () -> licenseService.searchLicenses(criteria, 0, 10, "email"));
+  }
+
   @Test
   void testRemoveLicensesSuccess() {
     License license = new License();
@@ -222,6 +371,182 @@ public class LicenseServiceTest {
         ConflictException.class, () -> licenseService.removeLicenses(List.of(dto), "ENTITY2"));
   }
 
+  @Test
+  void testMultiSeatLicenseAssignsOneSeatPerEntity() {
+    License license = new License();
+    license.setSerial("MS1");
+    license.setLicenseKey("MULTI_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setNumberOfSeats(2);
+    licenseRepository.save(license);
+
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY1"));
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY2"));
+    // re-activation by a seated entity keeps its seat
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY1"));
+    assertThrows(
+        ConflictException.class,
+        () -> licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY3")));
+    assertThrows(ConflictException.class, () -> licenseService.eraseLicense("MULTI_KEY"));
+
+    LicenseDto dto =
+        new LicenseDto(
+            "MS1", "MULTI_KEY", "PROD1", null, true, null, null, 2, null, null, null, null);
+    assertThrows(
+        ConflictException.class, () -> licenseService.removeLicenses(List.of(dto), "ENTITY3"));
+    licenseService.removeLicenses(List.of(dto), "ENTITY1");
+
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY3"));
+    assertEquals(List.of(1, 2), licenseRepository.findTakenSeats("MS1"));
+    assertNull(licenseRepository.findSeat("MS1", "ENTITY1"));
+    assertEquals(1, licenseRepository.findSeat("MS1", "ENTITY3"));
+  }
+
+  @Test
+  void testReleaseEntityReleasesLicensesAndSeats() {
+    for (int i = 1; i <= 3; i++) {
+      License license = new License();
+      license.setSerial("E" + i);
+      license.setLicenseKey("ENTITY_KEY_" + i);
+      license.setProductId("PROD1");
+      license.setEntityId(i < 3 ? "ENTITY1" : "ENTITY2");
+      license.setEnabled(true);
+      licenseRepository.save(license);
+    }
+    License multiSeat = new License();
+    multiSeat.setSerial("MS1");
+    multiSeat.setLicenseKey("MULTI_KEY");
+    multiSeat.setProductId("PROD1");
+    multiSeat.setEnabled(true);
+    multiSeat.setNumberOfSeats(2);
+    licenseRepository.save(multiSeat);
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY1"));
+    licenseService.addLicense(addRequest("MULTI_KEY", "ENTITY2"));
+
+    assertEquals(
+        List.of("E1", "E2", "MS1"),
+        licenseService.getEntityLicenses("ENTITY1").stream().map(LicenseDto::id).toList());
+
+    List<LicenseDto> released = licenseService.releaseEntity("ENTITY1");
+    assertEquals(List.of("E1", "E2", "MS1"), released.stream().map(LicenseDto::id).toList());
+    assertNull(released.get(0).entityId());
+    assertTrue(licenseService.getEntityLicenses("ENTITY1").isEmpty());
+    assertNull(licenseRepository.findById("E1").orElseThrow().getEntityId());
+    assertNull(licenseRepository.findSeat("MS1", "ENTITY1"));
+
+    // other entities keep what they hold
+    assertEquals(
+        List.of("E3", "MS1"),
+        licenseService.getEntityLicenses("ENTITY2").stream().map(LicenseDto::id).toList());
+    assertTrue(licenseService.releaseEntity("ENTITY1").isEmpty());
+  }
+
+  @Test
+  void testOperationsAreTimedByOutcomeAndPath() {
+    License license = new License();
+    license.setSerial("M1");
+    license.setLicenseKey("METRICS_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    licenseRepository.save(license);
+
+    double plain = operations("add", "success", "plain");
+    double conflict = operations("add", "conflict", "plain");
+    double unknown = operations("get", "bad_request", "none");
+
+    licenseService.addLicense(addRequest("METRICS_KEY", "ENTITY1"));
+    assertThrows(
+        ConflictException.class,
+        () -> licenseService.addLicense(addRequest("METRICS_KEY", "ENTITY2")));
+    assertThrows(BadRequestException.class, () -> licenseService.getLicense("NOPE", "PROD1"));
+
+    assertEquals(plain + 1, operations("add", "success", "plain"));
+    assertEquals(conflict + 1, operations("add", "conflict", "plain"));
+    assertEquals(unknown + 1, operations("get", "bad_request", "none"));
+  }
+
+  @Test
+  void testFailedCommitIsNotTimedAsSuccess() {
+    License license = new License();
+    license.setSerial("COMMIT_FAIL");
+    license.setLicenseKey("COMMIT_FAIL_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setEntityId("ENTITY1");
+    licenseRepository.save(license);
+    // the batch releases the license only when it commits, which this constraint then fails
+    jdbcTemplate.execute(
+        "ALTER TABLE licenses ADD CONSTRAINT ck_commit_fail"
+            + " CHECK (serial <> 'COMMIT_FAIL' OR entity_id IS NOT NULL)");
+    try {
+      double success = operations("batch", "success", "none");
+      double error = operations("batch", "error", "none");
+
+      List<BatchRequest.Operation> operations =
+          List.of(
+              new BatchRequest.Operation(
+                  "remove",
+                  null,
+                  "ENTITY1",
+                  null,
+                  new RemoveLicenseRequest.LicenseCluster(
+                      List.of(
+                          new LicenseDto(
+                              "COMMIT_FAIL", null, "PROD1", null, true, null, null, null, null,
+                              null, null, null)))));
+      assertThrows(
+          DataIntegrityViolationException.class, () -> licenseService.executeBatch(operations));
+
+      assertEquals(success, operations("batch", "success", "none"));
+      assertEquals(error + 1, operations("batch", "error", "none"));
+    } finally {
+      jdbcTemplate.execute("ALTER TABLE licenses DROP CONSTRAINT ck_commit_fail");
+    }
+  }
+
+  private double operations(String operation, String outcome, String path) {
+    Timer timer =
+        meterRegistry
+            .find(LicenseMetrics.TIMER)
+            .tags("operation", operation, "outcome", outcome, "path", path)
+            .timer();
+    return timer == null ? 0 : timer.count();
+  }
+
+  private static AddLicenseRequest addRequest(String key, String entityId) {
+    return new AddLicenseRequest(new AddLicenseRequest.LicenseData(key, "PROD1"), entityId, null);
+  }
+
+  @Test
+  void testRemoveLicensesReleasesWholeClusterOrNothing() {
+    for (int i = 1; i <= 3; i++) {
+      License license = new License();
+      license.setSerial("C" + i);
+      license.setLicenseKey("CLUSTER_KEY_" + i);
+      license.setProductId("PROD1");
+      license.setEntityId(i < 3 ? "ENTITY1" : "ENTITY2");
+      license.setEnabled(true);
+      licenseRepository.save(license);
+    }
+    List<LicenseDto> cluster = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      cluster.add(
+          new LicenseDto(
+              "C" + i, null, "PROD1", null, true, null, null, null, null, null, null, null));
+    }
+
+    // C3 belongs to another entity, so nothing is released
+    assertThrows(
+        ConflictException.class, () -> licenseService.removeLicenses(cluster, "ENTITY1"));
+    assertEquals("ENTITY1", licenseRepository.findById("C1").orElseThrow().getEntityId());
+
+    licenseService.removeLicenses(cluster.subList(0, 2), "ENTITY1");
+    assertNull(licenseRepository.findById("C1").orElseThrow().getEntityId());
+    assertNull(licenseRepository.findById("C2").orElseThrow().getEntityId());
+    assertEquals("ENTITY2", licenseRepository.findById("C3").orElseThrow().getEntityId());
+  }
+
   @Test
   void testGetLicenseReturnsExpectedDto() {
     License license = new License();
@@ -326,6 +651,161 @@ public class LicenseServiceTest {
     assertEquals(2, result.size()); // Upgrade und Previous zurückgegeben
   }
 
+  @Test
+  void testAddLicenseWithUpgradeLinkedAfterCreate() {
+    for (String name : List.of("ORIG", "PREV")) {
+      licenseService.createLicense(
+          new CreateLicenseRequest(
+              new CreateLicenseRequest.LicenseData(name + "_KEY", "PROD1", null, null),
+              name + "_ID",
+              null,
+              1));
+    }
+    // the shop links the licenses only after both were created
+    License previous = licenseRepository.findById("PREV_ID").orElseThrow();
+    previous.setUpgrade(true);
+    previous.setUpgradeFromKey("ORIG_KEY");
+    previous.setEntityId("ENTITY1");
+    licenseRepository.save(previous);
+
+    License upgrade = new License();
+    upgrade.setSerial("UPGRADE_ID");
+    upgrade.setLicenseKey("UPGRADE_KEY");
+    upgrade.setProductId("PROD1");
+    upgrade.setEnabled(true);
+    upgrade.setUpgrade(true);
+    upgrade.setUpgradeFromKey("PREV_KEY");
+    licenseRepository.save(upgrade);
+
+    List<String> result =
+        licenseService
+            .addLicense(
+                new AddLicenseRequest(
+                    new AddLicenseRequest.LicenseData("UPGRADE_KEY", "PROD1"),
+                    "ENTITY1",
+                    "PREV_KEY"))
+            .stream()
+            .map(LicenseDto::id)
+            .toList();
+
+    assertEquals(List.of("PREV_ID", "UPGRADE_ID", "ORIG_ID"), result);
+  }
+
+  @Test
+  void testAddLicenseWithUpgradeFromLicenseWithoutLineage() {
+    for (String name : List.of("ORIG", "PREV")) {
+      License l = new License();
+      l.setSerial(name + "_ID");
+      l.setLicenseKey(name + "_KEY");
+      l.setProductId("PROD1");
+      l.setEnabled(true);
+      l.setEntityId("ENTITY1");
+      l.setUpgrade(name.equals("PREV"));
+      l.setUpgradeFromKey(name.equals("PREV") ? "ORIG_KEY" : null);
+      licenseRepository.save(l);
+    }
+    License upgrade = new License();
+    upgrade.setSerial("UPGRADE_ID");
+    upgrade.setLicenseKey("UPGRADE_KEY");
+    upgrade.setProductId("PROD1");
+    upgrade.setEnabled(true);
+    upgrade.setUpgrade(true);
+    upgrade.setUpgradeFromKey("PREV_KEY");
+    licenseRepository.save(upgrade);
+    // e.g. restored from a backup taken before rebuild_lineage
+    jdbcTemplate.update(
+        "DELETE FROM license_lineage WHERE descendant_serial IN ('ORIG_ID', 'PREV_ID')");
+
+    List<String> result =
+        licenseService
+            .addLicense(
+                new AddLicenseRequest(
+                    new AddLicenseRequest.LicenseData("UPGRADE_KEY", "PROD1"),
+                    "ENTITY1",
+                    "PREV_KEY"))
+            .stream()
+            .map(LicenseDto::id)
+            .toList();
+
+    assertEquals(List.of("PREV_ID", "UPGRADE_ID", "ORIG_ID"), result);
+  }
+
+  @Test
+  void testAddLicenseWithUpgradeFromCyclicChainWithoutLineage() {
+    // two licenses that upgrade each other, written without JPA and thus without lineage
+    for (String[] l : List.of(new String[] {"CYC_A", "CYC_B"}, new String[] {"CYC_B", "CYC_A"})) {
+      jdbcTemplate.update(
+          "INSERT INTO licenses (serial, license_key, product_id, enabled, entity_id,"
+              + " number_of_seats, is_upgrade, upgrade_from_key, version)"
+              + " VALUES (?, ?, 'PROD1', TRUE, 'ENTITY1', 1, TRUE, ?, 0)",
+          l[0] + "_ID",
+          l[0] + "_KEY",
+          l[1] + "_KEY");
+    }
+    License upgrade = new License();
+    upgrade.setSerial("UPGRADE_ID");
+    upgrade.setLicenseKey("UPGRADE_KEY");
+    upgrade.setProductId("PROD1");
+    upgrade.setEnabled(true);
+    upgrade.setUpgrade(true);
+    upgrade.setUpgradeFromKey("CYC_A_KEY");
+    licenseRepository.save(upgrade);
+
+    List<String> result =
+        licenseService
+            .addLicense(
+                new AddLicenseRequest(
+                    new AddLicenseRequest.LicenseData("UPGRADE_KEY", "PROD1"),
+                    "ENTITY1",
+                    "CYC_A_KEY"))
+            .stream()
+            .map(LicenseDto::id)
+            .toList();
+
+    // the walk stops before the first license that would repeat
+    assertEquals(List.of("CYC_A_ID", "UPGRADE_ID", "CYC_B_ID"), result);
+  }
+
+  @Test
+  void testUpgradeFamilyFromRebuiltLineage() {
+    // written without JPA, so the lineage is only known after a rebuild
+    for (int i = 1; i <= 3; i++) {
+      jdbcTemplate.update(
+          "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+              + " is_upgrade, upgrade_from_key, version) VALUES (?, ?, 'PROD1', TRUE, 1, ?, ?, 0)",
+          "FAM_" + i,
+          "FAM_KEY_" + i,
+          i > 1,
+          i > 1 ? "FAM_KEY_" + (i - 1) : null);
+    }
+    assertThrows(BadRequestException.class, () -> licenseService.getUpgradeFamily("FAM_KEY_2"));
+
+    assertEquals(6, lineageBackfill.rebuild());
+
+    List<String> family =
+        licenseService.getUpgradeFamily("FAM_KEY_2").stream().map(LicenseDto::id).toList();
+    assertEquals(List.of("FAM_1", "FAM_2", "FAM_3"), family);
+  }
+
+  @Test
+  void testCreateAndEraseLicenseMaintainLineage() {
+    CreateLicenseRequest request =
+        new CreateLicenseRequest(
+            new CreateLicenseRequest.LicenseData("LIN_KEY", "PROD1", null, null),
+            "LIN_SERIAL",
+            null,
+            1);
+    licenseService.createLicense(request);
+
+    assertEquals(
+        List.of("LIN_SERIAL"),
+        licenseService.getUpgradeFamily("LIN_KEY").stream().map(LicenseDto::id).toList());
+
+    licenseService.eraseLicense("LIN_KEY");
+
+    assertThrows(BadRequestException.class, () -> licenseService.getUpgradeFamily("LIN_KEY"));
+  }
+
   @Test
   void testAddLicenseUpgradeThrowsIfPreconditionMissing() {
     License upgrade = new License();
@@ -0,0 +1,34 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.cyberstrak.license.web.SqlStatementCountFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * Asserts how many SQL statements a MockMvc request may run, as reported in the {@value
+ * SqlStatementCountFilter#HEADER} header the test profile enables.
+ */
+public final class SqlStatementBudget {
+
+  private SqlStatementBudget() {}
+
+  public static ResultMatcher atMost(int budget) {
+    return result -> {
+      String header = result.getResponse().getHeader(SqlStatementCountFilter.HEADER);
+      assertNotNull(header, "No " + SqlStatementCountFilter.HEADER + " header");
+      int statements = Integer.parseInt(header);
+      if (statements > budget) {
+        fail(
+            result.getRequest().getMethod()
+                + " "
+                + result.getRequest().getRequestURI()
+                + " ran "
+                + statements
+                + " SQL statements, the budget is "
+                + budget);
+      }
+    };
+  }
+}
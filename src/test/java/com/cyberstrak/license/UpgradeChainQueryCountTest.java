@@ -0,0 +1,86 @@
+package com.cyberstrak.license;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.cyberstrak.license.dto.AddLicenseRequest;
+import com.cyberstrak.license.dto.LicenseDto;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.jdbc.SqlStatementCounter;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseService;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Resolving an upgrade chain must cost the same number of statements for any chain length. */
+@SpringBootTest(classes = LicenseManagerApplication.class)
+@ActiveProfiles("test")
+public class UpgradeChainQueryCountTest {
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private LicenseService licenseService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    licenseRepository.deleteAll();
+  }
+
+  @Test
+  void testStatementCountIsIndependentOfChainLength() {
+    int shortChain = statementsForUpgradeOnChainOf(2, "A", false);
+    int longChain = statementsForUpgradeOnChainOf(20, "B", false);
+
+    assertEquals(shortChain, longChain);
+  }
+
+  @Test
+  void testStatementCountWithoutLineageIsIndependentOfChainLength() {
+    // the recursive query over upgrade_from_key stands in for the missing closure rows
+    int shortChain = statementsForUpgradeOnChainOf(2, "A", true);
+    int longChain = statementsForUpgradeOnChainOf(20, "B", true);
+
+    assertEquals(shortChain, longChain);
+  }
+
+  private int statementsForUpgradeOnChainOf(int length, String prefix, boolean withoutLineage) {
+    for (int i = 0; i < length; i++) {
+      License l = new License();
+      l.setSerial(prefix + "_S" + i);
+      l.setLicenseKey(prefix + "_K" + i);
+      l.setProductId("PROD1");
+      l.setEnabled(true);
+      l.setEntityId("ENTITY1");
+      l.setUpgrade(i > 0);
+      l.setUpgradeFromKey(i > 0 ? prefix + "_K" + (i - 1) : null);
+      licenseRepository.save(l);
+    }
+    License upgrade = new License();
+    upgrade.setSerial(prefix + "_UP");
+    upgrade.setLicenseKey(prefix + "_UP_KEY");
+    upgrade.setProductId("PROD1");
+    upgrade.setEnabled(true);
+    upgrade.setUpgrade(true);
+    licenseRepository.save(upgrade);
+    if (withoutLineage) jdbcTemplate.update("DELETE FROM license_lineage");
+
+    AddLicenseRequest request =
+        new AddLicenseRequest(
+            new AddLicenseRequest.LicenseData(prefix + "_UP_KEY", "PROD1"),
+            "ENTITY1",
+            prefix + "_K" + (length - 1));
+
+    SqlStatementCounter.start();
+    List<LicenseDto> result = licenseService.addLicense(request);
+    int statements = SqlStatementCounter.stop();
+
+    assertEquals(length + 1, result.size());
+    return statements;
+  }
+}
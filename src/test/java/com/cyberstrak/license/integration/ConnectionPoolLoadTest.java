@@ -0,0 +1,178 @@
+package com.cyberstrak.license.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cyberstrak.license.LicenseManagerApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Clients that are slow to read a response must not starve the callbacks of connections. The pool
+ * has as many connections as there are stalled clients; callbacks still get one because a request
+ * returns its connection when {@code LicenseService} returns, before the response is written.
+ */
+@SpringBootTest(
+    classes = {LicenseManagerApplication.class, ConnectionPoolLoadTest.SmallSocketBuffers.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1",
+      "spring.datasource.hikari.maximum-pool-size=2",
+      "spring.datasource.hikari.connection-timeout=250"
+    })
+@ActiveProfiles("test")
+@AutoConfigureTestRestTemplate
+public class ConnectionPoolLoadTest {
+  private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolLoadTest.class);
+
+  private static final int LICENSES = 200;
+  private static final int STALLED_CLIENTS = 2;
+  private static final int CALLBACKS = 50;
+
+  /** Small socket buffers on both ends, so a client that stops reading blocks the server. */
+  @TestConfiguration
+  static class SmallSocketBuffers {
+    @Bean
+    WebServerFactoryCustomizer<ConfigurableTomcatWebServerFactory> smallSendBuffer() {
+      return factory ->
+          factory.addConnectorCustomizers(
+              connector -> connector.setProperty("socket.txBufSize", "4096"));
+    }
+  }
+
+  @LocalServerPort int port;
+  @Autowired TestRestTemplate restTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired MeterRegistry meterRegistry;
+
+  @Value("${issuer.id}")
+  String issuerId;
+
+  @Value("${issuer.secret}")
+  String issuerSecret;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.update("DELETE FROM licenses");
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    // a page of search results large enough to fill the socket buffers of a stalled client
+    String comment = "x".repeat(1_000);
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < LICENSES; i++) {
+      rows.add(new Object[] {"S" + i, "K" + i, comment, now});
+    }
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+            + " is_upgrade, comment, date, version)"
+            + " VALUES (?, ?, 'PROD1', TRUE, 1, FALSE, ?, ?, 0)",
+        rows);
+  }
+
+  @Test
+  void testStalledClientsDoNotStarveCallbacks() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(STALLED_CLIENTS);
+    double timeoutsBefore = meterRegistry.get("hikaricp.connections.timeout").counter().count();
+    CountDownLatch reading = new CountDownLatch(STALLED_CLIENTS);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      List<Future<String>> searches = new ArrayList<>();
+      for (int i = 0; i < STALLED_CLIENTS; i++) {
+        searches.add(
+            executor.submit(
+                () -> stalledGet("/api/licenses/search?size=" + LICENSES, reading, release)));
+      }
+      assertThat(reading.await(30, TimeUnit.SECONDS)).isTrue();
+
+      TestRestTemplate client = restTemplate.withBasicAuth(issuerId, issuerSecret);
+      long started = System.nanoTime();
+      for (int i = 0; i < CALLBACKS; i++) {
+        ResponseEntity<String> response =
+            client.getForEntity(
+                "http://localhost:" + port + "/get_license?key=K{k}&aud=PROD1", String.class, i);
+        assertThat(response.getStatusCode()).as(response.getBody()).isEqualTo(HttpStatus.OK);
+      }
+      long millis = Math.round((System.nanoTime() - started) / 1e6);
+      release.countDown();
+
+      for (Future<String> search : searches) {
+        assertThat(search.get(30, TimeUnit.SECONDS)).containsPattern("\"total\" ?: ?" + LICENSES);
+      }
+      logger.info(
+          "{} get_license calls in {} ms next to {} stalled clients, pool of 2",
+          CALLBACKS,
+          millis,
+          STALLED_CLIENTS);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+    assertThat(meterRegistry.get("hikaricp.connections.timeout").counter().count())
+        .isEqualTo(timeoutsBefore);
+  }
+
+  /**
+   * Sends a GET over a small receive buffer, reads the first bytes and then stops reading until
+   * {@code release}, so that the server blocks writing the rest. HTTP/1.0 keeps the body free of
+   * chunk headers.
+   */
+  private String stalledGet(String path, CountDownLatch reading, CountDownLatch release)
+      throws Exception {
+    try (Socket socket = new Socket()) {
+      socket.setReceiveBufferSize(4096);
+      socket.connect(new InetSocketAddress("localhost", port));
+      String credentials =
+          Base64.getEncoder()
+              .encodeToString((issuerId + ":" + issuerSecret).getBytes(StandardCharsets.UTF_8));
+      socket
+          .getOutputStream()
+          .write(
+              ("GET "
+                      + path
+                      + " HTTP/1.0\r\nHost: localhost\r\nAuthorization: Basic "
+                      + credentials
+                      + "\r\n\r\n")
+                  .getBytes(StandardCharsets.US_ASCII));
+
+      InputStream in = socket.getInputStream();
+      ByteArrayOutputStream response = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int n = in.read(buffer);
+      if (n > 0) response.write(buffer, 0, n);
+      reading.countDown();
+      release.await();
+      in.transferTo(response);
+      return response.toString(StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.cyberstrak.license.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.command.CommandScope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Databases whose licenses table was created by {@code spring.jpa.hibernate.ddl-auto} have no
+ * Liquibase history. Changesets 01 and 02 are marked as ran on them and the later ones apply,
+ * recording the lineage of the licenses already stored.
+ */
+public class LegacySchemaMigrationTest {
+
+  @ParameterizedTest
+  // the timestamp type Hibernate declares on each database
+  @CsvSource({
+    "jdbc:h2:mem:legacyschema;DB_CLOSE_DELAY=-1, TIMESTAMP",
+    "jdbc:sqlite::memory:, DATETIME"
+  })
+  void testChangelogAppliesToSchemaCreatedByHibernate(String url, String timestamp)
+      throws Exception {
+    try (Connection con = DriverManager.getConnection(url);
+        Statement st = con.createStatement()) {
+      st.executeUpdate(
+          "CREATE TABLE licenses (serial VARCHAR(255) NOT NULL PRIMARY KEY,"
+              + " license_key VARCHAR(255) NOT NULL UNIQUE, product_id VARCHAR(255) NOT NULL,"
+              + " entity_id VARCHAR(255), enabled BOOLEAN NOT NULL,"
+              + " number_of_seats INTEGER NOT NULL, expiration_date " + timestamp + ","
+              + " is_upgrade BOOLEAN NOT NULL, upgrade_from_key VARCHAR(255), date " + timestamp
+              + ", email VARCHAR(255),"
+              + " comment VARCHAR(1024))");
+      st.executeUpdate(
+          "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+              + " is_upgrade) VALUES ('A', 'KA', 'P', TRUE, 1, FALSE)");
+      st.executeUpdate(
+          "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+              + " is_upgrade, upgrade_from_key) VALUES ('B', 'KB', 'P', TRUE, 1, TRUE, 'KA')");
+
+      Database database =
+          DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(con));
+      new CommandScope("update")
+          .addArgumentValue("database", database)
+          .addArgumentValue("changelogFile", "db/changelog/db.changelog-master.yaml")
+          .execute();
+
+      try (ResultSet rs =
+          st.executeQuery("SELECT serial, version FROM licenses ORDER BY serial")) {
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("A");
+        assertThat(rs.getLong(2)).isZero();
+      }
+      // the lineage of the existing licenses is filled in by changeset 04
+      try (ResultSet rs =
+          st.executeQuery(
+              "SELECT ancestor_serial || descendant_serial || depth FROM license_lineage"
+                  + " ORDER BY ancestor_serial, descendant_serial")) {
+        List<String> lineage = new ArrayList<>();
+        while (rs.next()) lineage.add(rs.getString(1));
+        assertThat(lineage).containsExactly("AA0", "AB1", "BB0");
+      }
+      try (ResultSet rs =
+          st.executeQuery(
+              "SELECT EXECTYPE FROM DATABASECHANGELOG WHERE FILENAME LIKE '%/01-%'"
+                  + " OR FILENAME LIKE '%/02-%' ORDER BY FILENAME")) {
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("MARK_RAN");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("MARK_RAN");
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.cyberstrak.license.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.command.CommandScope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Changeset 08 moves entities assigned to multi-seat licenses through {@code licenses.entity_id}
+ * onto seats. The legacy rows are written after migrating, and 08 is then applied once more.
+ */
+public class LicenseSeatMigrationTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"jdbc:h2:mem:seatmigration;DB_CLOSE_DELAY=-1", "jdbc:sqlite::memory:"})
+  void testLegacyHoldersOfMultiSeatLicensesMoveOntoSeats(String url) throws Exception {
+    try (Connection con = DriverManager.getConnection(url);
+        Statement st = con.createStatement()) {
+      Database database =
+          DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(con));
+      update(database);
+
+      st.executeUpdate(
+          "INSERT INTO licenses (serial, license_key, product_id, entity_id, enabled,"
+              + " number_of_seats, is_upgrade, version) VALUES"
+              + " ('A', 'KA', 'P', 'E1', TRUE, 3, FALSE, 0),"
+              + " ('B', 'KB', 'P', 'E2', TRUE, 2, FALSE, 0),"
+              + " ('C', 'KC', 'P', 'E4', TRUE, 1, FALSE, 0),"
+              + " ('D', 'KD', 'P', 'E5', TRUE, 2, FALSE, 0)");
+      // claimed after changeset 06: a seat of someone else, and a seat of the legacy holder
+      st.executeUpdate(
+          "INSERT INTO license_seats (serial, seat_no, entity_id) VALUES"
+              + " ('B', 1, 'E3'), ('D', 2, 'E5')");
+      st.executeUpdate("DELETE FROM DATABASECHANGELOG WHERE ID = '08'");
+      update(database);
+
+      String seats = "SELECT serial, seat_no, entity_id FROM license_seats ORDER BY serial, seat_no";
+      assertThat(rows(st, seats))
+          .containsExactly("A 1 E1", "B 1 E3", "B 2 E2", "D 2 E5");
+      assertThat(rows(st, "SELECT serial, entity_id, version FROM licenses ORDER BY serial"))
+          .containsExactly("A null 1", "B null 1", "C E4 0", "D null 1");
+    }
+  }
+
+  private static void update(Database database) throws Exception {
+    new CommandScope("update")
+        .addArgumentValue("database", database)
+        .addArgumentValue("changelogFile", "db/changelog/db.changelog-master.yaml")
+        .execute();
+  }
+
+  private static List<String> rows(Statement st, String sql) throws Exception {
+    List<String> rows = new ArrayList<>();
+    try (ResultSet rs = st.executeQuery(sql)) {
+      while (rs.next()) {
+        rows.add(rs.getString(1) + " " + rs.getString(2) + " " + rs.getString(3));
+      }
+    }
+    return rows;
+  }
+}
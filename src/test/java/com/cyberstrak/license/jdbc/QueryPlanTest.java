@@ -0,0 +1,211 @@
+package com.cyberstrak.license.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+import com.cyberstrak.license.LicenseManagerApplication;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.repository.LicenseSpecifications;
+import jakarta.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import liquibase.command.CommandScope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Explains every statement the repository issues on the request paths and fails on a full table
+ * scan, on H2 and on SQLite migrated by the same changelog. Statements are captured as issued
+ * through the {@link SqlStatementMonitor}. Reads of the whole table on purpose (the dump and the
+ * lineage rebuild) are not exercised.
+ */
+@SpringBootTest(classes = LicenseManagerApplication.class)
+@ActiveProfiles("test")
+@Transactional
+public class QueryPlanTest {
+
+  @Autowired private LicenseRepository licenseRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private EntityManager entityManager;
+  @MockitoSpyBean private SqlStatementMonitor monitor;
+
+  @Test
+  void testRepositoryQueriesUseIndexesOnH2() {
+    Map<String, Object[]> statements = exercise();
+
+    for (Map.Entry<String, Object[]> statement : statements.entrySet()) {
+      String plan =
+          jdbcTemplate.queryForObject(
+              "EXPLAIN " + statement.getKey(), String.class, statement.getValue());
+      assertThat(plan).as(statement.getKey()).doesNotContain(".tableScan");
+    }
+  }
+
+  @Test
+  void testRepositoryQueriesUseIndexesOnSqlite() throws Exception {
+    Map<String, Object[]> statements = exercise();
+
+    try (Connection sqlite = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+      Database database =
+          DatabaseFactory.getInstance()
+              .findCorrectDatabaseImplementation(new JdbcConnection(sqlite));
+      new CommandScope("update")
+          .addArgumentValue("database", database)
+          .addArgumentValue("changelogFile", "db/changelog/db.changelog-master.yaml")
+          .execute();
+
+      for (Map.Entry<String, Object[]> statement : statements.entrySet()) {
+        String sql = statement.getKey();
+        List<String> plan = explainOnSqlite(sqlite, sql, statement.getValue());
+        assertThat(plan)
+            .as(sql)
+            .noneMatch(step -> step.startsWith("SCAN ") && !step.contains(" USING "));
+        // a page of one product or entity is read from the index in serial order, not sorted
+        if (sql.contains("where l1_0.product_id=? order by")
+            || sql.contains("where l1_0.entity_id=? order by")) {
+          assertThat(plan).as(sql).noneMatch(step -> step.contains("TEMP B-TREE"));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the plan of {@code sql} with its parameters bound, as SQLite only uses an index for
+   * {@code LIKE} against a known prefix. The statements are generated for H2, so paging and the
+   * alias of bulk updates are rewritten first. Scans of the recursive upgrade chain {@code c} are
+   * left out; they read the chain, not a table.
+   */
+  private static List<String> explainOnSqlite(Connection sqlite, String sql, Object[] parameters)
+      throws Exception {
+    Object[] values = parameters.clone();
+    if (sql.endsWith(" offset ? rows fetch first ? rows only")) {
+      sql = sql.replace(" offset ? rows fetch first ? rows only", " limit ? offset ?");
+      Object offset = values[values.length - 2];
+      values[values.length - 2] = values[values.length - 1];
+      values[values.length - 1] = offset;
+    }
+    if (sql.startsWith("update licenses l1_0")) {
+      sql = sql.replace("l1_0.", "").replace(" l1_0", "");
+    }
+
+    List<String> plan = new ArrayList<>();
+    try (PreparedStatement explain = sqlite.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+      for (int i = 0; i < values.length; i++) {
+        explain.setObject(i + 1, values[i] instanceof Timestamp t ? t.toString() : values[i]);
+      }
+      try (ResultSet rs = explain.executeQuery()) {
+        while (rs.next()) {
+          String step = rs.getString("detail");
+          if (!step.equals("SCAN c")) plan.add(step);
+        }
+      }
+    }
+    return plan;
+  }
+
+  /** Runs every repository query of the request paths and returns the distinct statements. */
+  private Map<String, Object[]> exercise() {
+    LocalDateTime now = LocalDateTime.now();
+    licenseRepository.deleteAll();
+    licenseRepository.save(license("S1", "K1", null, 1));
+    licenseRepository.save(license("S2", "K2", "K1", 1));
+    licenseRepository.save(license("S3", "K3", null, 2));
+    licenseRepository.flush();
+    entityManager.clear();
+    // a license written without JPA, whose lineage is recorded by hand below
+    jdbcTemplate.update(
+        "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+            + " is_upgrade, upgrade_from_key, version) VALUES ('S4', 'K4', 'PROD1', TRUE, 1,"
+            + " TRUE, 'K2', 0)");
+    clearInvocations(monitor);
+
+    licenseRepository.insertLineage("S4", "K2");
+    licenseRepository.relinkLineage("S2", "K1");
+    licenseRepository.relinkUpgradesFrom(List.of("K1", "K2"));
+    licenseRepository.findByLicenseKeyAndProductId("K1", "PROD1");
+    licenseRepository.findByLicenseKey("K1");
+    licenseRepository.findById("S3");
+    licenseRepository.findViewByLicenseKeyAndProductId("K1", "PROD1");
+    licenseRepository.findViewById("S3");
+    licenseRepository.findAllByKeysOrSerials(List.of("K1"), List.of("S2"));
+    licenseRepository.assignToEntity("S1", "E1", now);
+    licenseRepository.assignToEntity("S2", "E1", now);
+    licenseRepository.releaseFromEntity(List.of("S1"), "E2", now);
+    licenseRepository.findPageAfter(null, 10);
+    licenseRepository.findPageAfter("S1", 10);
+    licenseRepository.findUpgradeChain("K2", 64);
+    licenseRepository.findLineageByKey("K2");
+    licenseRepository.findUpgradeFamily("K1");
+    licenseRepository.insertSeat("S3", 1, "E1", now);
+    licenseRepository.findSeat("S3", "E1");
+    licenseRepository.findTakenSeats("S3");
+    licenseRepository.findSeatedSerials(List.of("S3"), "E1");
+    licenseRepository.countSeats("S3");
+    licenseRepository.findByEntityId("E1");
+    licenseRepository.findExpiredAfter(now.plusYears(1), null, null, 10);
+    licenseRepository.findExpiredAfter(now.plusYears(1), now, "S1", 10);
+    licenseRepository.disableExpired(List.of("S1"), now.minusYears(1));
+    licenseRepository.deleteSeats(List.of("S3"), "E1");
+    // pages smaller than the result, so that the count queries run as well
+    PageRequest page = PageRequest.of(0, 1, Sort.by("serial"));
+    licenseRepository.findAll(LicenseSpecifications.keyStartsWith("K"), page);
+    licenseRepository.findAll(LicenseSpecifications.productId("PROD1"), page);
+    licenseRepository.findAll(LicenseSpecifications.entityId("E1"), page);
+    licenseRepository.findAll(
+        LicenseSpecifications.enabled(true).and(LicenseSpecifications.expiresOnOrAfter(now)),
+        page);
+    licenseRepository.findAll(LicenseSpecifications.expiresOnOrBefore(now.plusYears(1)), page);
+    License s3 = licenseRepository.findById("S3").orElseThrow();
+    s3.setComment("changed");
+    licenseRepository.flush();
+    licenseRepository.deleteLineage("S1");
+    licenseRepository.delete(s3);
+    licenseRepository.flush();
+
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<Object[]> parameters = ArgumentCaptor.forClass(Object[].class);
+    verify(monitor, atLeastOnce())
+        .executed(sql.capture(), parameters.capture(), anyInt(), anyLong());
+    Map<String, Object[]> statements = new LinkedHashMap<>();
+    for (int i = 0; i < sql.getAllValues().size(); i++) {
+      statements.putIfAbsent(sql.getAllValues().get(i), parameters.getAllValues().get(i));
+    }
+    return statements;
+  }
+
+  private static License license(String serial, String key, String upgradeFrom, int seats) {
+    License license = new License();
+    license.setSerial(serial);
+    license.setLicenseKey(key);
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    license.setNumberOfSeats(seats);
+    license.setUpgradeFromKey(upgradeFrom);
+    license.setExpirationDate(LocalDateTime.now().plusDays(1));
+    return license;
+  }
+}
@@ -0,0 +1,70 @@
+package com.cyberstrak.license.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cyberstrak.license.LicenseManagerApplication;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.service.LicenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Every statement is timed by query shape; with a zero threshold every statement is logged. */
+@SpringBootTest(
+    classes = LicenseManagerApplication.class,
+    properties = "license.sql.slow-query-threshold=0ms")
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+public class SqlStatementMonitorTest {
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private LicenseService licenseService;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Test
+  void testShapeFoldsLiteralsAndParameterLists() {
+    assertEquals(
+        "select * from licenses l where l.serial in (?...) and l.key=? and l.seats>?",
+        SqlStatementMonitor.shape(
+            "select *\n  from licenses l where l.serial in (?, ?,?)"
+                + " and l.key='it''s' and l.seats>10"));
+    assertEquals(
+        "select l1_0.serial from licenses l1_0 where l1_0.serial=?",
+        SqlStatementMonitor.shape("select l1_0.serial from licenses l1_0 where l1_0.serial=?"));
+  }
+
+  @Test
+  void testSlowStatementsAreLoggedWithParametersAndCaller(CapturedOutput output) {
+    licenseRepository.deleteAll();
+    License license = new License();
+    license.setSerial("SLOW1");
+    license.setLicenseKey("SLOW_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    licenseRepository.save(license);
+
+    licenseService.getLicense("SLOW_KEY", "PROD1");
+
+    assertTrue(output.getOut().contains("in LicenseService.getLicense"), output.getOut());
+    assertTrue(output.getOut().contains("parameters [SLOW_KEY, PROD1]"), output.getOut());
+
+    Timer lookup =
+        meterRegistry.find(SqlStatementMonitor.TIMER).timers().stream()
+            .filter(t -> t.getId().getTag("shape").contains("license_key=?"))
+            .findFirst()
+            .orElse(null);
+    assertNotNull(lookup);
+    assertTrue(lookup.count() > 0);
+  }
+}
@@ -0,0 +1,142 @@
+package com.cyberstrak.license.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.cyberstrak.license.LicenseManagerApplication;
+import com.cyberstrak.license.entity.License;
+import com.cyberstrak.license.repository.LicenseRepository;
+import com.cyberstrak.license.security.AdminCredentials;
+import com.cyberstrak.license.security.JwtService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(classes = LicenseManagerApplication.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class JfrEndpointTest {
+
+  @Value("${issuer.id}")
+  private String ISSUER_ID;
+
+  @Value("${issuer.secret}")
+  private String ISSUER_SECRET;
+
+  @Value("${admin.id}")
+  private String ADMIN_ID;
+
+  @Value("${admin.secret}")
+  private String ADMIN_SECRET;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private LicenseRepository licenseRepository;
+
+  @Autowired private JwtService jwtService;
+
+  @Autowired private AuthenticationManager authenticationManager;
+
+  @Test
+  void testEndpointRequiresAdminRole() throws Exception {
+    String token = jwtService.generateToken("viewer", List.of());
+
+    mockMvc
+        .perform(get("/actuator/jfr").header("Authorization", "Bearer " + token))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(post("/actuator/jfr/start")).andExpect(status().isUnauthorized());
+
+    // the issuer authenticates Cloud Zoo callbacks and logins, but is no administrator
+    mockMvc
+        .perform(post("/actuator/jfr/start").with(httpBasic(ISSUER_ID, ISSUER_SECRET)))
+        .andExpect(status().isForbidden());
+    // /api/auth/login mints its JWT with the authorities granted here
+    assertTrue(
+        authenticationManager
+            .authenticate(new UsernamePasswordAuthenticationToken(ISSUER_ID, ISSUER_SECRET))
+            .getAuthorities()
+            .isEmpty());
+    assertEquals(
+        AdminCredentials.AUTHORITIES,
+        authenticationManager
+            .authenticate(new UsernamePasswordAuthenticationToken(ADMIN_ID, ADMIN_SECRET))
+            .getAuthorities());
+  }
+
+  @Test
+  void testRecordingCapturesLicenseEvents() throws Exception {
+    licenseRepository.deleteAll();
+    License license = new License();
+    license.setSerial("JFR1");
+    license.setLicenseKey("JFR_KEY");
+    license.setProductId("PROD1");
+    license.setEnabled(true);
+    licenseRepository.save(license);
+
+    mockMvc
+        .perform(post("/actuator/jfr/start").with(httpBasic(ADMIN_ID, ADMIN_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.state").value("RUNNING"));
+
+    mockMvc
+        .perform(
+            post("/add_license")
+                .with(httpBasic(ISSUER_ID, ISSUER_SECRET))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    """
+                    { "license": { "key": "JFR_KEY", "aud": "PROD1" }, "entityId": "ENTITY1" }
+                    """))
+        .andExpect(status().isOk());
+    jwtService.verify(jwtService.generateToken("admin", List.of()));
+
+    mockMvc
+        .perform(post("/actuator/jfr/stop").with(httpBasic(ADMIN_ID, ADMIN_SECRET)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.state").value("STOPPED"));
+    byte[] dump =
+        mockMvc
+            .perform(get("/actuator/jfr/dump").with(httpBasic(ADMIN_ID, ADMIN_SECRET)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+    Path file = Files.createTempFile("jfr-endpoint-test", ".jfr");
+    try {
+      Files.write(file, dump);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertTrue(
+          events.stream()
+              .anyMatch(
+                  e ->
+                      e.getEventType().getName().equals("com.cyberstrak.license.Operation")
+                          && "add".equals(e.getString("operation"))
+                          && "PROD1".equals(e.getString("productId"))
+                          && "success".equals(e.getString("outcome"))));
+      assertTrue(
+          events.stream()
+              .anyMatch(
+                  e -> e.getEventType().getName().equals("com.cyberstrak.license.JwtVerification")));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.cyberstrak.license.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import liquibase.command.CommandScope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * A seat lost to a concurrent claim is told from any other failed insert on every database the
+ * changelog targets, and the surrounding transaction stays usable.
+ */
+public class LicenseSeatInsertTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"jdbc:h2:mem:seatinsert;DB_CLOSE_DELAY=-1", "jdbc:sqlite::memory:"})
+  void testOnlyTakenSeatsAreLostRaces(String url) throws Exception {
+    try (Connection con = DriverManager.getConnection(url)) {
+      Database database =
+          DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(con));
+      new CommandScope("update")
+          .addArgumentValue("database", database)
+          .addArgumentValue("changelogFile", "db/changelog/db.changelog-master.yaml")
+          .execute();
+      try (Statement st = con.createStatement()) {
+        st.executeUpdate(
+            "INSERT INTO licenses (serial, license_key, product_id, enabled, number_of_seats,"
+                + " is_upgrade, version) VALUES ('S1', 'K1', 'P', TRUE, 3, FALSE, 0)");
+      }
+      con.setAutoCommit(false);
+      JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+      LicenseRepositoryCustomImpl repository = new LicenseRepositoryCustomImpl(jdbcTemplate);
+      LocalDateTime now = LocalDateTime.now();
+
+      assertTrue(repository.insertSeat("S1", 1, "E1", now));
+      // the seat is taken, and the entity already holds a seat
+      assertFalse(repository.insertSeat("S1", 1, "E2", now));
+      assertFalse(repository.insertSeat("S1", 2, "E1", now));
+      // a seat without an entity is no lost race
+      assertThrows(DataAccessException.class, () -> repository.insertSeat("S1", 2, null, now));
+
+      assertTrue(repository.insertSeat("S1", 2, "E2", now));
+      assertEquals(List.of(1, 2), repository.findTakenSeats("S1"));
+      con.rollback();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.cyberstrak.license.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.ServletOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * The Server-Timing header is set before the response is committed and the body is passed
+ * through, not buffered, so a timed dump is still streamed.
+ */
+public class ServerTimingFilterTest {
+  private static final byte[] ROW =
+      "{\"id\":\"S1\",\"key\":\"K1\",\"aud\":\"PROD1\"}\n".getBytes(StandardCharsets.UTF_8);
+
+  private final ServerTimingFilter filter = new ServerTimingFilter(true, 0);
+
+  @Test
+  void testTimedDumpIsStreamed() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/dump_licenses");
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    int rows = 4 * response.getBufferSize() / ROW.length;
+
+    filter.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          ServletOutputStream out = res.getOutputStream();
+          for (int i = 0; i < rows; i++) {
+            out.write(ROW);
+            if (i == rows / 2) {
+              // half way through, the first rows have reached the client with the header
+              assertThat(response.isCommitted()).isTrue();
+              assertThat(response.getHeader(ServerTiming.HEADER)).contains("total;dur=");
+              assertThat(response.getContentAsByteArray().length).isGreaterThan(ROW.length * i);
+            }
+          }
+          out.flush();
+        });
+
+    assertThat(response.getContentAsByteArray()).hasSize(rows * ROW.length);
+  }
+
+  @Test
+  void testHeaderIsSetOnSmallResponse() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/get_license");
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (req, res) -> res.getOutputStream().write(ROW));
+
+    assertThat(response.getHeader(ServerTiming.HEADER)).matches("total;dur=[0-9.]+");
+    assertThat(response.getContentAsByteArray()).isEqualTo(ROW);
+  }
+}
@@ -0,0 +1,43 @@
+package com.cyberstrak.license.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/** The statement count header does not buffer the response, so a dump is still streamed. */
+public class SqlStatementCountFilterTest {
+  private static final byte[] ROW =
+      "{\"id\":\"S1\",\"key\":\"K1\",\"aud\":\"PROD1\"}\n".getBytes(StandardCharsets.UTF_8);
+
+  private final SqlStatementCountFilter filter =
+      new SqlStatementCountFilter(new SimpleMeterRegistry(), true);
+
+  @Test
+  void testDumpIsStreamedWithHeader() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    int rows = 4 * response.getBufferSize() / ROW.length;
+
+    filter.doFilter(
+        new MockHttpServletRequest("GET", "/dump_licenses"),
+        response,
+        (req, res) -> {
+          ServletOutputStream out = res.getOutputStream();
+          for (int i = 0; i < rows; i++) {
+            out.write(ROW);
+            if (i == rows / 2) {
+              assertThat(response.isCommitted()).isTrue();
+              assertThat(response.getHeader(SqlStatementCountFilter.HEADER)).isEqualTo("0");
+              assertThat(response.getContentAsByteArray().length).isGreaterThan(ROW.length * i);
+            }
+          }
+          out.flush();
+        });
+
+    assertThat(response.getContentAsByteArray()).hasSize(rows * ROW.length);
+  }
+}